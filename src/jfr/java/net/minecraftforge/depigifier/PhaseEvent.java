@@ -0,0 +1,72 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * JFR view of a Metrics.Phase. Built apart from the main sources, with a JDK that has jdk.jfr, and only ever reached by Metrics through
+ * method handles to start and finish, so neither building nor running DePigifier needs a Java 8 that ships JFR.
+ */
+@Name("net.minecraftforge.depigifier.Phase")
+@Label("Phase")
+@Category("DePigifier")
+@Description("A phase of a DePigifier run")
+class PhaseEvent extends Event {
+    @Label("Name")
+    String name;
+
+    @Label("Items")
+    long items;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+    @Label("Cache Hits")
+    long cacheHits;
+
+    @Label("Cache Misses")
+    long cacheMisses;
+
+    static Object start() {
+        PhaseEvent ret = new PhaseEvent();
+        ret.begin();
+        return ret;
+    }
+
+    static void finish(final Object event, final String name, final long items, final long allocated, final long cacheHits, final long cacheMisses) {
+        PhaseEvent ret = (PhaseEvent)event;
+        ret.end();
+        if (ret.shouldCommit()) {
+            ret.name = name;
+            ret.items = items;
+            ret.allocated = allocated;
+            ret.cacheHits = cacheHits;
+            ret.cacheMisses = cacheMisses;
+            ret.commit();
+        }
+    }
+}
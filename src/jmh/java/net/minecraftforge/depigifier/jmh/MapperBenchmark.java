@@ -0,0 +1,46 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.jmh;
+
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+    private String[] descriptors;
+
+    @Setup(Level.Trial)
+    public void setup(MappingState state) {
+        descriptors = state.oldTree.getClasses().stream().map(Class::getMethods).flatMap(c -> c.stream().map(Method::getOldDesc)).toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void mapDescriptor(MappingState state, Blackhole blackhole) {
+        for (String desc : descriptors)
+            blackhole.consume(state.oldTree.mapDescriptor(desc));
+    }
+}
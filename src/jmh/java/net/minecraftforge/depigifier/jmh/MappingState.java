@@ -0,0 +1,58 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.jmh;
+
+import net.minecraftforge.depigifier.model.ProguardReader;
+import net.minecraftforge.depigifier.model.SymbolTable;
+import net.minecraftforge.depigifier.model.Tree;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/*
+ * Old and new versions of a synthetic mapping set, override the sizes with -PjmhSizes=1000,500000
+ */
+@State(Scope.Benchmark)
+public class MappingState {
+    @Param({ "1000", "10000", "100000", "500000" })
+    public int size;
+
+    public byte[] oldData;
+    public byte[] newData;
+    public Tree oldTree;
+    public Tree newTree;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SyntheticMappings mappings = new SyntheticMappings(size);
+        oldData = mappings.getOld();
+        newData = mappings.getNew();
+        // Shared like the command line does
+        final SymbolTable symbols = new SymbolTable();
+        oldTree = ProguardReader.read(new ByteArrayInputStream(oldData), true, symbols);
+        newTree = ProguardReader.read(new ByteArrayInputStream(newData), true, symbols);
+    }
+}
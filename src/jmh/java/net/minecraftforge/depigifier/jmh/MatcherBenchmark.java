@@ -0,0 +1,76 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.jmh;
+
+import net.minecraftforge.depigifier.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/*
+ * Only the matching itself is measured. The matchers are headless, so no report files are written, and the summary and class suggestions
+ * they print go to a stream that drops them.
+ */
+@State(Scope.Benchmark)
+public class MatcherBenchmark {
+    private static final PrintStream NOWHERE = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    private Matcher matcher;
+
+    // compareExistingClasses needs the class lists from the first phase, and changes the matcher's state, so every call gets a fresh one.
+    @Setup(Level.Invocation)
+    public void setupMatcher(MappingState state) {
+        matcher = matcher(state);
+        matcher.computeClassListDifferences();
+    }
+
+    private static Matcher matcher(final MappingState state) {
+        final Matcher ret = new Matcher(state.oldTree, state.newTree);
+        ret.setConsole(NOWHERE);
+        return ret;
+    }
+
+    @Benchmark
+    public Matcher computeClassListDifferences(MappingState state) {
+        Matcher ret = matcher(state);
+        ret.computeClassListDifferences();
+        return ret;
+    }
+
+    @Benchmark
+    public Matcher compareExistingClasses() {
+        matcher.compareExistingClasses();
+        return matcher;
+    }
+}
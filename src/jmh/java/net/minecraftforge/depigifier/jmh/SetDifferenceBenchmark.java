@@ -0,0 +1,67 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.jmh;
+
+import net.minecraftforge.depigifier.SetDifference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/*
+ * Splits the old and new class names into missing, common and new, like Matcher does for every class and member set.
+ */
+@State(Scope.Benchmark)
+public class SetDifferenceBenchmark {
+    private Set<String> left;
+    private Set<String> right;
+    private List<String> sortedLeft;
+    private List<String> sortedRight;
+
+    @Setup(Level.Trial)
+    public void setup(MappingState state) {
+        left = state.oldTree.getClassNames();
+        right = state.newTree.getClassNames();
+        sortedLeft = new ArrayList<>(left);
+        sortedRight = new ArrayList<>(right);
+        Collections.sort(sortedLeft);
+        Collections.sort(sortedRight);
+    }
+
+    @Benchmark
+    public void hashed(Blackhole bh) {
+        SetDifference.compare(left, Function.identity(), right, bh::consume, (l, r) -> bh.consume(l), bh::consume);
+    }
+
+    @Benchmark
+    public void merged(Blackhole bh) {
+        SetDifference.merge(sortedLeft.iterator(), Function.identity(), sortedRight.iterator(), Comparator.naturalOrder(), bh::consume, (l, r) -> bh.consume(l), bh::consume);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.jmh;
+
+import net.minecraftforge.depigifier.Sorters;
+import net.minecraftforge.depigifier.model.Class;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Sorts the obfuscated names of the old tree, the same way joined_forced.txt is sorted.
+ */
+@State(Scope.Benchmark)
+public class SortersBenchmark {
+    private List<String> classes;
+    private List<String> fields;
+    private List<String> methods;
+
+    @Setup(Level.Trial)
+    public void setup(MappingState state) {
+        classes = new ArrayList<>();
+        fields = new ArrayList<>();
+        methods = new ArrayList<>();
+        for (Class cls : state.oldTree.getClasses()) {
+            classes.add(cls.getNewName());
+            cls.getFields().forEach(f -> fields.add(cls.getNewName() + "." + f.getNewName()));
+            cls.getMethods().forEach(m -> methods.add(cls.getNewName() + "." + m.getNewName() + " " + m.getNewDesc(state.oldTree)));
+        }
+        // Start from the same unsorted order every time
+        Collections.shuffle(classes, new Random(0));
+        Collections.shuffle(fields, new Random(0));
+        Collections.shuffle(methods, new Random(0));
+    }
+
+    @Benchmark
+    public List<String> sortClasses() {
+        List<String> ret = new ArrayList<>(classes);
+        ret.sort(Sorters.CLASSES);
+        return ret;
+    }
+
+    @Benchmark
+    public List<String> sortFields() {
+        List<String> ret = new ArrayList<>(fields);
+        ret.sort(Sorters.FIELDS);
+        return ret;
+    }
+
+    @Benchmark
+    public List<String> sortMethods() {
+        List<String> ret = new ArrayList<>(methods);
+        ret.sort(Sorters.METHODS);
+        return ret;
+    }
+
+    @Benchmark
+    public List<String> sortClassesKeyed() {
+        return Sorters.sorted(classes, Sorters::classKey);
+    }
+
+    @Benchmark
+    public List<String> sortFieldsKeyed() {
+        return Sorters.sorted(fields, Sorters::fieldKey);
+    }
+
+    @Benchmark
+    public List<String> sortMethodsKeyed() {
+        return Sorters.sorted(methods, Sorters::methodKey);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.jmh;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Generates ProGuard mapping files that look like a game's: packaged classes, some inner classes, and members referencing each other.
+ * The 'new' version of a set drops and moves a small fraction of classes and members and reshuffles every obfuscated name,
+ * which is what the matcher spends its time on between real versions.
+ */
+public class SyntheticMappings {
+    private static final String[] PACKAGES = { "net.minecraft.world", "net.minecraft.client", "net.minecraft.util", "net.minecraft.server", "com.mojang.math" };
+    private static final String[] PRIMITIVES = { "int", "long", "boolean", "float", "double", "void", "java.lang.String" };
+
+    private final List<String> classes = new ArrayList<>();
+    private final int size;
+
+    public SyntheticMappings(final int size) {
+        this.size = size;
+        final Random rand = new Random(size);
+        for (int x = 0; x < size; x++) {
+            if (x > 0 && rand.nextInt(5) == 0)
+                classes.add(classes.get(rand.nextInt(classes.size())) + "$Inner" + x);
+            else
+                classes.add(PACKAGES[rand.nextInt(PACKAGES.length)] + ".Class" + x);
+        }
+    }
+
+    public byte[] getOld() {
+        return build(false).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public byte[] getNew() {
+        return build(true).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String build(final boolean changed) {
+        // Same seed for the structure of both versions, a separate one for what changes between them.
+        final Random rand = new Random(size * 31L);
+        final Random changes = new Random(size * 17L);
+        final List<Integer> obf = new ArrayList<>(classes.size());
+        for (int x = 0; x < classes.size(); x++)
+            obf.add(x);
+        Collections.shuffle(obf, changed ? changes : new Random(size));
+
+        final StringBuilder buf = new StringBuilder(classes.size() * 400);
+        for (int x = 0; x < classes.size(); x++) {
+            String name = classes.get(x);
+            boolean dropped = changed && changes.nextInt(50) == 0;
+            if (changed && changes.nextInt(50) == 0)
+                name = name.replace(".world.", ".level.");
+
+            if (!dropped) {
+                buf.append(name).append(" -> ").append(obfName(obf.get(x))).append(":\n");
+                buf.append("    1:1:void <init>() -> <init>\n");
+            }
+
+            int member = 0;
+            int fields = rand.nextInt(8);
+            for (int y = 0; y < fields; y++) {
+                String type = type(rand);
+                if (dropped || (changed && changes.nextInt(50) == 0))
+                    continue;
+                buf.append("    ").append(type).append(" field").append(y).append(" -> ").append(obfName(member++)).append('\n');
+            }
+
+            int methods = rand.nextInt(16);
+            for (int y = 0; y < methods; y++) {
+                String ret = type(rand);
+                int args = rand.nextInt(4);
+                StringBuilder desc = new StringBuilder();
+                for (int z = 0; z < args; z++)
+                    desc.append(z == 0 ? "" : ",").append(type(rand));
+                int start = rand.nextInt(2000) + 1;
+                int end = start + rand.nextInt(20);
+                if (dropped || (changed && changes.nextInt(50) == 0))
+                    continue;
+                buf.append("    ").append(start).append(':').append(end).append(':')
+                   .append(ret).append(" method").append(y).append('(').append(desc).append(") -> ").append(obfName(member++)).append('\n');
+            }
+        }
+        return buf.toString();
+    }
+
+    private String type(final Random rand) {
+        return rand.nextInt(3) == 0 ? classes.get(rand.nextInt(classes.size())) : PRIMITIVES[rand.nextInt(PRIMITIVES.length)];
+    }
+
+    private static String obfName(int idx) {
+        final StringBuilder buf = new StringBuilder();
+        do {
+            buf.insert(0, (char)('a' + idx % 26));
+            idx = idx / 26 - 1;
+        } while (idx >= 0);
+        return buf.toString();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.jmh;
+
+import net.minecraftforge.depigifier.model.ProguardReader;
+import net.minecraftforge.depigifier.model.Tree;
+import net.minecraftforge.depigifier.model.TreeSnapshot;
+import net.minecraftforge.srgutils.IMappingFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@State(Scope.Benchmark)
+public class TreeBenchmark {
+    private IMappingFile mapping;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setup(MappingState state) throws IOException {
+        mapping = IMappingFile.load(new ByteArrayInputStream(state.oldData));
+        snapshot = Files.createTempFile("depigifier", ".tree");
+        TreeSnapshot.write(state.oldTree, snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(snapshot);
+    }
+
+    @Benchmark
+    public Tree fromMappingFile() {
+        return Tree.from(mapping, true);
+    }
+
+    @Benchmark
+    public Tree fromProguard(MappingState state) throws IOException {
+        return ProguardReader.read(new ByteArrayInputStream(state.oldData), true);
+    }
+
+    @Benchmark
+    public Tree fromSnapshot() throws IOException {
+        return TreeSnapshot.read(snapshot);
+    }
+}
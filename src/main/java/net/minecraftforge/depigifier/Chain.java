@@ -0,0 +1,187 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import com.machinezoo.noexception.Exceptions;
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Field;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.SymbolTable;
+import net.minecraftforge.depigifier.model.Tree;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/*
+ * Compares a list of versions one after another, each ProGuard file is parsed once and shared by the two steps it is part of.
+ * Every step gets its own numbered output directory, and the matches of all steps are chained together into a single first -> last oldtonew.tsrg.
+ * A name only makes it into the composed map if it was matched in every step.
+ */
+public class Chain {
+    private final List<Path> files;
+    private final Path outputDir;
+    private int parallelism = 1;
+    private boolean structural;
+    private boolean lineMatching;
+    private Compression compression = Compression.NONE;
+    private TreeCache cache;
+    // Every version is compared with its neighbours, so they all share one table, which they can be loaded into in parallel
+    private final SymbolTable symbols = new SymbolTable();
+    private Metrics metrics = new Metrics();
+
+    public Chain(final List<Path> files, final Path output) {
+        if (files.size() < 2)
+            throw new IllegalArgumentException("A chain needs at least two files");
+        this.files = files;
+        this.outputDir = output;
+    }
+
+    // Number of steps compared at once, anything less than 2 runs every step on the calling thread.
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setStructural(final boolean structural) {
+        this.structural = structural;
+    }
+
+    public void setLineMatching(final boolean lineMatching) {
+        this.lineMatching = lineMatching;
+    }
+
+    // Compresses the reports of every step, and the composed mapping
+    public void setCompression(final Compression compression) {
+        this.compression = compression;
+    }
+
+    public void setCache(final TreeCache cache) {
+        this.cache = cache;
+    }
+
+    // Each step's phases are recorded with its output directory as a prefix
+    public void setMetrics(final Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void run() throws IOException {
+        final ExecutorService pool = parallelism < 2 ? null : Executors.newFixedThreadPool(parallelism);
+        try {
+            final List<Tree> trees = new ArrayList<>();
+            for (Future<Tree> tree : submitAll(pool, files, this::load))
+                trees.add(Exceptions.sneak().get(tree::get));
+
+            final List<Integer> steps = new ArrayList<>();
+            for (int x = 0; x < trees.size() - 1; x++)
+                steps.add(x);
+            // Steps run concurrently, so each one prints into a buffer and the buffers are printed in order.
+            final List<ByteArrayOutputStream> logs = new ArrayList<>();
+            steps.forEach(x -> logs.add(new ByteArrayOutputStream()));
+            final List<Matcher> matchers = new ArrayList<>();
+            for (Future<Matcher> step : submitAll(pool, steps, x -> compare(x, trees.get(x), trees.get(x + 1), new PrintStream(logs.get(x), true)))) {
+                matchers.add(Exceptions.sneak().get(step::get));
+                System.out.print(new String(logs.get(matchers.size() - 1).toByteArray(), StandardCharsets.UTF_8));
+            }
+
+            compose(trees.get(0), matchers);
+        } finally {
+            if (pool != null)
+                pool.shutdownNow();
+        }
+    }
+
+    private static <T, R> List<Future<R>> submitAll(final ExecutorService pool, final List<T> values, final Function<T, R> task) {
+        final List<Future<R>> ret = new ArrayList<>();
+        for (T value : values) {
+            if (pool != null) {
+                ret.add(pool.submit(() -> task.apply(value)));
+            } else {
+                ret.add(CompletableFuture.completedFuture(task.apply(value)));
+            }
+        }
+        return ret;
+    }
+
+    private Tree load(final Path file) {
+        return Exceptions.sneak().get(() -> Unpig.load(file, cache, symbols, metrics));
+    }
+
+    private Matcher compare(final int step, final Tree oldTree, final Tree newTree, final PrintStream console) {
+        final String name = String.format("%02d-%02d", step, step + 1);
+        final Path output = outputDir.resolve(name);
+        Exceptions.sneak().run(() -> Files.createDirectories(output));
+
+        console.println(files.get(step).getFileName() + " -> " + files.get(step + 1).getFileName());
+
+        final Matcher ret = new Matcher(oldTree, newTree, output);
+        ret.setConsole(console);
+        ret.setMetrics(metrics.scoped(name));
+        ret.setCompression(compression);
+        ret.setLineMatching(lineMatching);
+        ret.computeClassListDifferences();
+        if (structural)
+            ret.matchStructurally();
+        ret.compareExistingClasses();
+        return ret;
+    }
+
+    /*
+     * Walks every class, field and method of the last version back through each step's New -> Old maps until it reaches the first version.
+     */
+    private void compose(final Tree firstTree, final List<Matcher> matchers) {
+        Map<Class, Class> classes = matchers.get(matchers.size() - 1).getForcedClasses();
+        Map<Field, Field> fields = matchers.get(matchers.size() - 1).getForcedFields();
+        Map<Method, Method> methods = matchers.get(matchers.size() - 1).getForcedMethods();
+        for (int x = matchers.size() - 2; x >= 0; x--) {
+            classes = chain(classes, matchers.get(x).getForcedClasses());
+            fields = chain(fields, matchers.get(x).getForcedFields());
+            methods = chain(methods, matchers.get(x).getForcedMethods());
+        }
+
+        final Map<Class, Class> _classes = classes;
+        final Map<Field, Field> _fields = fields;
+        final Map<Method, Method> _methods = methods;
+        final ReportWriter reports = new ReportWriter(1, metrics, compression);
+        reports.stream(outputDir.resolve("oldtonew.tsrg"), out -> Matcher.buildTSRG(firstTree, _classes, _fields, _methods, out));
+        System.out.println("Chained: " + classes.size() + " classes, " + fields.size() + " fields, " + methods.size() + " methods from " + files.get(0).getFileName() + " to " + files.get(files.size() - 1).getFileName());
+    }
+
+    private static <T> Map<T, T> chain(final Map<T, T> later, final Map<T, T> earlier) {
+        final Map<T, T> ret = new HashMap<>();
+        later.forEach((nw, mid) -> {
+            T old = earlier.get(mid);
+            if (old != null)
+                ret.put(nw, old);
+        });
+        return ret;
+    }
+}
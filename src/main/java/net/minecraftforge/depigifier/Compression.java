@@ -0,0 +1,112 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.minecraftforge.depigifier;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZInputStream;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Compression of the files we read and write. Input is recognized by its magic bytes rather than its extension,
+ * so archived maps can be passed as they are, and is always decompressed while it is read instead of to disk first.
+ */
+public enum Compression {
+    NONE(""),
+    GZIP(".gz"),
+    XZ(".xz");
+
+    private static final byte[] GZIP_MAGIC = { (byte)0x1f, (byte)0x8b };
+    private static final byte[] XZ_MAGIC = { (byte)0xfd, '7', 'z', 'X', 'Z', 0 };
+    private static final int BUFFER = 1 << 16;
+
+    private final String extension;
+
+    Compression(final String extension) {
+        this.extension = extension;
+    }
+
+    // Output files get the usual extension appended, joined_forced.txt becomes joined_forced.txt.gz
+    public Path resolve(final Path file) {
+        return this == NONE ? file : file.resolveSibling(file.getFileName() + extension);
+    }
+
+    public OutputStream wrap(final OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP: return new GZIPOutputStream(out, BUFFER);
+            case XZ:   return new XZOutputStream(out, new LZMA2Options());
+            default:   return out;
+        }
+    }
+
+    public InputStream wrap(final InputStream in) throws IOException {
+        switch (this) {
+            case GZIP: return new GZIPInputStream(in, BUFFER);
+            case XZ:   return new XZInputStream(in);
+            default:   return in;
+        }
+    }
+
+    // Opens a file for reading, decompressing it if it starts with the gzip or xz magic bytes.
+    public static InputStream open(final Path file) throws IOException {
+        final InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER);
+        try {
+            return detect(in).wrap(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // Peeks at the start of a stream that supports mark, leaving it where it was.
+    public static Compression detect(final InputStream in) throws IOException {
+        final byte[] header = new byte[XZ_MAGIC.length];
+        in.mark(header.length);
+        int len = 0;
+        for (int read; len < header.length && (read = in.read(header, len, header.length - len)) != -1; )
+            len += read;
+        in.reset();
+
+        if (startsWith(header, len, XZ_MAGIC))
+            return XZ;
+        if (startsWith(header, len, GZIP_MAGIC))
+            return GZIP;
+        return NONE;
+    }
+
+    private static boolean startsWith(final byte[] header, final int len, final byte[] magic) {
+        if (len < magic.length)
+            return false;
+        for (int x = 0; x < magic.length; x++) {
+            if (header[x] != magic[x])
+                return false;
+        }
+        return true;
+    }
+}
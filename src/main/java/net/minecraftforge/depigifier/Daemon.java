@@ -0,0 +1,247 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import joptsimple.*;
+import joptsimple.util.PathConverter;
+import joptsimple.util.PathProperties;
+import net.minecraftforge.depigifier.model.Tree;
+import net.minecraftforge.srgutils.IMappingFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/*
+ * Keeps the JVM and recently used trees around between runs. Listens on a loopback port and reads one request per line,
+ * written the same way as the command line: --oldPG, --newPG, --out and optionally --mapping, --oldJar, --newJar, --structural, --overrides, --lines,
+ * --format, --reverse, --compress and --metrics.
+ * Arguments are separated by spaces, and can be wrapped in double quotes if they contain any.
+ * Everything the run prints is sent back, followed by a line with "OK <millis>" or "ERROR <message>". A line with just "stop" shuts the daemon down.
+ *
+ * Trees are kept in a LRU cache keyed by the file they were loaded from and its modification time, so a file that changed is loaded again.
+ * Each cached tree has its own symbol table, so the names of an evicted tree are released with it.
+ * Requests are handled one at a time, as they share the cached trees.
+ */
+public class Daemon {
+    private final int port;
+    // Absolute path, and the jar a tree was scanned with -> Tree
+    private final Map<String, Cached> trees;
+    private int parallelism = 1;
+    private TreeCache cache;
+    private PrintStream console = System.out;
+    private boolean stopped;
+
+    private final OptionParser parser = new OptionParser();
+    private final ArgumentAcceptingOptionSpec<Path> oldPGFile = parser.accepts("oldPG").withRequiredArg().required().withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
+    private final ArgumentAcceptingOptionSpec<Path> newPGFile = parser.accepts("newPG").withRequiredArg().required().withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
+    private final ArgumentAcceptingOptionSpec<Path> manualMapFile = parser.accepts("mapping").withRequiredArg().withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
+    private final ArgumentAcceptingOptionSpec<Path> oldJarFile = parser.accepts("oldJar").withRequiredArg().withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
+    private final ArgumentAcceptingOptionSpec<Path> newJarFile = parser.accepts("newJar").withRequiredArg().withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
+    private final ArgumentAcceptingOptionSpec<Path> outDir = parser.accepts("out").withRequiredArg().required().withValuesConvertedBy(new PathConverter());
+    private final AbstractOptionSpec<Void> structural = parser.accepts("structural");
+    private final AbstractOptionSpec<Void> overrides = parser.accepts("overrides").availableIf("oldJar", "newJar");
+    private final AbstractOptionSpec<Void> lineMatching = parser.accepts("lines");
+    private final ArgumentAcceptingOptionSpec<IMappingFile.Format> mappingFormats = parser.accepts("format").withRequiredArg().withValuesSeparatedBy(',').withValuesConvertedBy(new Unpig.FormatConverter());
+    private final AbstractOptionSpec<Void> reverseMappings = parser.accepts("reverse");
+    private final ArgumentAcceptingOptionSpec<Compression> compressOutput = parser.accepts("compress").withRequiredArg().withValuesConvertedBy(new Unpig.CompressionConverter());
+    private final AbstractOptionSpec<Void> metricsFile = parser.accepts("metrics");
+
+    public Daemon(final int port, final int capacity) {
+        this.port = port;
+        this.trees = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Number of threads each request uses to compare classes and scan jars
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    // Trees that aren't kept in memory are still loaded from the snapshot cache if there is one
+    public void setCache(final TreeCache cache) {
+        this.cache = cache;
+    }
+
+    public void setConsole(final PrintStream console) {
+        this.console = console;
+    }
+
+    public void run() throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            console.println("Listening on " + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort());
+            while (!stopped) {
+                try (Socket socket = server.accept()) {
+                    serve(socket);
+                } catch (IOException e) {
+                    console.println("Connection failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(final Socket socket) throws IOException {
+        final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        final PrintStream out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8.name());
+        String line;
+        while (!stopped && (line = in.readLine()) != null) {
+            if (line.trim().isEmpty())
+                continue;
+            if ("stop".equals(line.trim())) {
+                stopped = true;
+                out.println("OK 0");
+            } else {
+                final long start = System.nanoTime();
+                try {
+                    handle(split(line), out);
+                    out.println("OK " + (System.nanoTime() - start) / 1000000);
+                } catch (Exception e) {
+                    // Checked exceptions from the worker pools are rethrown sneakily, usually wrapped in an ExecutionException. None of them may stop the daemon.
+                    final Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    out.println("ERROR " + (cause.getMessage() == null ? cause.toString() : cause.getMessage()).replace('\n', ' '));
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private void handle(final String[] args, final PrintStream out) throws IOException {
+        final OptionSet argset = parser.parse(args);
+        final Path output = argset.valueOf(outDir);
+        final Metrics metrics = new Metrics();
+
+        // Like on the command line, a jar has to be given for each side or for neither
+        if (argset.has(oldJarFile) != argset.has(newJarFile))
+            throw new IllegalArgumentException("--oldJar and --newJar have to be given together");
+        final boolean jars = argset.has(oldJarFile);
+        final Tree oldTree = load(argset.valueOf(oldPGFile), jars ? argset.valueOf(oldJarFile) : null, metrics);
+        final Tree newTree = load(argset.valueOf(newPGFile), jars ? argset.valueOf(newJarFile) : null, metrics);
+        Files.createDirectories(output);
+
+        final Matcher comp = new Matcher(oldTree, newTree, output);
+        comp.setParallelism(parallelism);
+        comp.setMetrics(metrics);
+        comp.setConsole(out);
+        comp.setOverrides(argset.has(overrides));
+        comp.setLineMatching(argset.has(lineMatching));
+        comp.setMappingFormats(argset.valuesOf(mappingFormats), argset.has(reverseMappings));
+        if (argset.has(compressOutput))
+            comp.setCompression(argset.valueOf(compressOutput));
+        if (argset.has(manualMapFile)) {
+            final List<Tree> manualMappings = new ArrayList<>();
+            for (Path manualMap : argset.valuesOf(manualMapFile))
+                manualMappings.add(get(manualMap, null, metrics, () -> Unpig.loadMapping(manualMap)));
+            comp.addMapper(Unpig.compose(manualMappings, metrics));
+        }
+        comp.computeClassListDifferences();
+        if (argset.has(structural))
+            comp.matchStructurally();
+        comp.compareExistingClasses();
+
+        if (argset.has(metricsFile))
+            metrics.write(output.resolve("metrics.json"));
+    }
+
+    /*
+     * Scanning a jar adds to the tree, so a tree scanned with a jar is kept apart from the plain one and from ones scanned with other jars.
+     */
+    private Tree load(final Path file, final Path jar, final Metrics metrics) throws IOException {
+        if (jar == null)
+            return get(file, null, metrics, () -> Unpig.load(file, cache, metrics));
+        return get(file, jar, metrics, () -> {
+            final Tree ret = Unpig.load(file, cache, metrics);
+            try (Metrics.Phase phase = metrics.start("scan " + jar.getFileName())) {
+                JarScanner.scan(jar, ret, parallelism);
+            }
+            return ret;
+        });
+    }
+
+    private Tree get(final Path file, final Path jar, final Metrics metrics, final Loader loader) throws IOException {
+        final String key = file.toAbsolutePath().normalize() + (jar == null ? "" : "|" + jar.toAbsolutePath().normalize());
+        final String stamp = Files.getLastModifiedTime(file) + (jar == null ? "" : "|" + Files.getLastModifiedTime(jar));
+        final Cached entry = trees.get(key);
+        if (entry != null && entry.stamp.equals(stamp)) {
+            metrics.start("cached " + file.getFileName()).items(entry.tree.getClasses().size()).close();
+            return entry.tree;
+        }
+        final Tree ret = loader.load();
+        trees.put(key, new Cached(stamp, ret));
+        return ret;
+    }
+
+    // Splits on spaces, keeping anything in double quotes together
+    public static String[] split(final String line) {
+        final List<String> ret = new ArrayList<>();
+        final StringBuilder buf = new StringBuilder();
+        boolean quoted = false;
+        boolean token = false;
+        for (int x = 0; x < line.length(); x++) {
+            char c = line.charAt(x);
+            if (c == '"') {
+                quoted = !quoted;
+                token = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (token)
+                    ret.add(buf.toString());
+                buf.setLength(0);
+                token = false;
+            } else {
+                buf.append(c);
+                token = true;
+            }
+        }
+        if (token)
+            ret.add(buf.toString());
+        return ret.toArray(new String[ret.size()]);
+    }
+
+    private interface Loader {
+        Tree load() throws IOException;
+    }
+
+    private static class Cached {
+        private final String stamp;
+        private final Tree tree;
+
+        private Cached(final String stamp, final Tree tree) {
+            this.stamp = stamp;
+            this.tree = tree;
+        }
+    }
+}
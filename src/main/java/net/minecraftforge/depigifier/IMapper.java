@@ -26,8 +26,25 @@ public interface IMapper {
     String mapField(String cls, String field);
     String mapMethod(String cls, String method, String desc);
 
+    // Scans the descriptor in place, a new string is only built once a class actually maps to something else.
     default String mapDescriptor(String desc) {
-        return mapDescriptor(Type.getArgumentTypes(desc), Type.getReturnType(desc));
+        StringBuilder buf = null;
+        int copied = 0;
+        for (int start = desc.indexOf('L'); start != -1; start = desc.indexOf('L', start)) {
+            int end = desc.indexOf(';', start);
+            String cls = desc.substring(start + 1, end);
+            String mapped = mapClass(cls);
+            if (!mapped.equals(cls)) {
+                if (buf == null)
+                    buf = new StringBuilder(desc.length() + 16);
+                buf.append(desc, copied, start + 1).append(mapped);
+                copied = end;
+            }
+            start = end + 1;
+        }
+        if (buf == null)
+            return desc;
+        return buf.append(desc, copied, desc.length()).toString();
     }
 
     default String mapDescriptor(Type[] args, Type ret) {
@@ -0,0 +1,340 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Field;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.Tree;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * Reads the obfuscated classes of a jar and attaches a normalized hash of each method's body, and the methods it calls, to the matching Method in the Tree.
+ * The super class and interfaces of each class are recorded too, where they are part of the Tree.
+ * Class and member references are hashed using the tree's old names, and debug information is ignored,
+ * so a method that was only renamed between versions hashes the same in both jars.
+ */
+public class JarScanner {
+    // Bodies this small are mostly getters and trivial overrides, too common to match anything on their own.
+    private static final int MIN_INSNS = 4;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Tree tree;
+
+    private JarScanner(final Tree tree) {
+        this.tree = tree;
+    }
+
+    /*
+     * Entries are handed to a fixed number of workers through a bounded queue, so only a handful of class files are in memory at once.
+     */
+    public static void scan(final Path jar, final Tree tree, final int threads) throws IOException {
+        final JarScanner scanner = new JarScanner(tree);
+        final int workers = Math.max(1, threads);
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(workers * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        final AtomicReference<Exception> error = new AtomicReference<>();
+
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements() && error.get() == null) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class"))
+                    continue;
+                pool.execute(() -> {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        scanner.scanClass(new ClassReader(in));
+                    } catch (IOException | RuntimeException e) {
+                        error.compareAndSet(null, e);
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + jar, e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (error.get() != null)
+            throw new IOException("Failed to read " + jar, error.get());
+    }
+
+    private void scanClass(final ClassReader reader) {
+        final Class cls = tree.tryNewClass(reader.getClassName());
+        if (cls == null)
+            return;
+
+        final List<Class> parents = new ArrayList<>(1 + reader.getInterfaces().length);
+        if (reader.getSuperName() != null)
+            addParent(parents, reader.getSuperName());
+        for (String itf : reader.getInterfaces())
+            addParent(parents, itf);
+        cls.setParents(parents.isEmpty() ? Collections.emptyList() : parents);
+
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                Method mtd = cls.tryNewMethod(name, descriptor);
+                if (mtd == null)
+                    return null;
+                mtd.setAccess(access);
+                return new BodyHasher(mtd);
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    private void addParent(final List<Class> parents, final String name) {
+        final Class parent = tree.tryNewClass(name);
+        if (parent != null)
+            parents.add(parent);
+    }
+
+    private String mapClass(final String cls) {
+        Class _cls = tree.tryNewClass(cls);
+        return _cls == null ? cls : _cls.getOldName();
+    }
+
+    private String mapDescriptor(final String desc) {
+        final StringBuilder buf = new StringBuilder(desc.length());
+        for (int x = 0; x < desc.length(); x++) {
+            char c = desc.charAt(x);
+            buf.append(c);
+            if (c == 'L') {
+                int end = desc.indexOf(';', x);
+                buf.append(mapClass(desc.substring(x + 1, end))).append(';');
+                x = end;
+            }
+        }
+        return buf.toString();
+    }
+
+    private String mapType(final String type) {
+        return type.charAt(0) == '[' ? mapDescriptor(type) : mapClass(type);
+    }
+
+    private class BodyHasher extends MethodVisitor {
+        private final Method method;
+        private final Map<Label, Integer> labels = new HashMap<>();
+        private long hash = FNV_OFFSET;
+        private int insns;
+
+        private BodyHasher(final Method method) {
+            super(Opcodes.ASM9);
+            this.method = method;
+        }
+
+        private void mix(int value) {
+            hash = (hash ^ value) * FNV_PRIME;
+        }
+
+        private void mix(String value) {
+            mix(value == null ? 0 : value.hashCode());
+        }
+
+        // Labels are numbered in the order they are first seen, which is the same for identical code.
+        private void mix(Label label) {
+            mix(labels.computeIfAbsent(label, k -> labels.size()));
+        }
+
+        private void insn(int opcode) {
+            insns++;
+            mix(opcode);
+        }
+
+        private void mixMember(final String owner, final String name, final String desc, boolean call) {
+            final Class cls = tree.tryNewClass(owner);
+            if (cls == null) {
+                mix(owner);
+                mix(name);
+                mix(desc);
+                return;
+            }
+
+            mix(cls.getOldName());
+            if (desc.charAt(0) != '(') {
+                Field fld = cls.tryNewField(name);
+                mix(fld == null ? name : fld.getOldName());
+                mix(mapDescriptor(desc));
+                return;
+            }
+
+            Method target = cls.tryNewMethod(name, desc);
+            if (target == null) {
+                mix(name);
+                mix(mapDescriptor(desc));
+            } else {
+                // Leave the name out, so calls to renamed methods still hash the same.
+                mix(target.getOldDesc());
+                if (call)
+                    method.addCall(target);
+            }
+        }
+
+        private void mixConstant(final Object value) {
+            if (value instanceof Type) {
+                mix(mapDescriptor(((Type)value).getDescriptor()));
+            } else if (value instanceof Handle) {
+                Handle handle = (Handle)value;
+                mix(handle.getTag());
+                mixMember(handle.getOwner(), handle.getName(), handle.getDesc(), true);
+            } else {
+                mix(value == null ? 0 : value.getClass().getName().hashCode());
+                mix(value == null ? 0 : value.hashCode());
+            }
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            insn(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            insn(opcode);
+            mix(operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            insn(opcode);
+            mix(var);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            insn(opcode);
+            mix(mapType(type));
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            insn(opcode);
+            mixMember(owner, name, descriptor, false);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            insn(opcode);
+            mixMember(owner, name, descriptor, true);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrap, Object... args) {
+            insn(Opcodes.INVOKEDYNAMIC);
+            mix(name);
+            mix(mapDescriptor(descriptor));
+            mixConstant(bootstrap);
+            for (Object arg : args)
+                mixConstant(arg);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            insn(opcode);
+            mix(label);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            mix(-1);
+            mix(label);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            insn(Opcodes.LDC);
+            mixConstant(value);
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            insn(Opcodes.IINC);
+            mix(var);
+            mix(increment);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... targets) {
+            insn(Opcodes.TABLESWITCH);
+            mix(min);
+            mix(max);
+            mix(dflt);
+            for (Label target : targets)
+                mix(target);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] targets) {
+            insn(Opcodes.LOOKUPSWITCH);
+            mix(dflt);
+            for (int x = 0; x < keys.length; x++) {
+                mix(keys[x]);
+                mix(targets[x]);
+            }
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int dimensions) {
+            insn(Opcodes.MULTIANEWARRAY);
+            mix(mapDescriptor(descriptor));
+            mix(dimensions);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            mix(start);
+            mix(end);
+            mix(handler);
+            mix(type == null ? null : mapClass(type));
+        }
+
+        @Override
+        public void visitEnd() {
+            if (insns >= MIN_INSNS)
+                method.setBody(hash == 0 ? 1 : hash);
+        }
+    }
+}
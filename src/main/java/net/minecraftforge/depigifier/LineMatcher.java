@@ -0,0 +1,141 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.minecraftforge.depigifier;
+
+import net.minecraftforge.depigifier.model.Method;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/*
+ * Pairs up renamed methods of a matched class by their line ranges in the original source, as recorded in ProGuard maps.
+ * Edits earlier in a file shift everything after them, so old ranges are first moved by the median shift of the methods already matched in the class.
+ * A missing method is paired with the new method its moved range overlaps the most, if that method has the same mapped descriptor.
+ * Ties, and new methods picked by more than one missing method, are left alone.
+ */
+public class LineMatcher {
+    private final Function<Method, String> mapDescriptor;
+
+    // mapDescriptor maps an old method's descriptor to the names used by the new tree
+    public LineMatcher(final Function<Method, String> mapDescriptor) {
+        this.mapDescriptor = mapDescriptor;
+    }
+
+    // matched is New -> Old, and the result is too, in the order of missing
+    public Map<Method, Method> match(final Map<Method, Method> matched, final Collection<Method> missing, final Collection<Method> added) {
+        final Map<Method, Method> ret = new LinkedHashMap<>();
+        final IntervalIndex index = new IntervalIndex(added);
+        if (index.isEmpty())
+            return ret;
+        final int shift = medianShift(matched);
+
+        final Set<Method> duplicates = new HashSet<>();
+        for (Method old : missing) {
+            if (!old.hasLines())
+                continue;
+            final int start = old.getStart() + shift;
+            final int end = old.getEnd() + shift;
+            final String desc = mapDescriptor.apply(old);
+
+            Method best = null;
+            int bestOverlap = 0;
+            boolean tied = false;
+            for (Method nw : index.overlapping(start, end)) {
+                if (!desc.equals(nw.getOldDesc()))
+                    continue;
+                int overlap = Math.min(end, nw.getEnd()) - Math.max(start, nw.getStart()) + 1;
+                if (overlap > bestOverlap) {
+                    best = nw;
+                    bestOverlap = overlap;
+                    tied = false;
+                } else if (overlap == bestOverlap) {
+                    tied = true;
+                }
+            }
+            if (best == null || tied || duplicates.contains(best))
+                continue;
+            if (ret.putIfAbsent(best, old) != null) {
+                ret.remove(best);
+                duplicates.add(best);
+            }
+        }
+        return ret;
+    }
+
+    private static int medianShift(final Map<Method, Method> matched) {
+        final int[] shifts = matched.entrySet().stream()
+            .filter(e -> e.getKey().hasLines() && e.getValue().hasLines())
+            .mapToInt(e -> e.getKey().getStart() - e.getValue().getStart())
+            .sorted().toArray();
+        return shifts.length == 0 ? 0 : shifts[shifts.length / 2];
+    }
+
+    /*
+     * Ranges sorted by start, next to the largest end of any range up to that point.
+     * The ranges overlapping [start, end] all start at or before end, found by a binary search, and walking back from there can stop
+     * as soon as the largest end drops below start. Method ranges rarely nest, so a query only visits the ranges it returns.
+     */
+    static class IntervalIndex {
+        private final Method[] methods;
+        private final int[] starts;
+        private final int[] maxEnds;
+
+        IntervalIndex(final Collection<Method> methods) {
+            this.methods = methods.stream().filter(Method::hasLines).sorted(Comparator.comparingInt(Method::getStart)).toArray(Method[]::new);
+            this.starts = new int[this.methods.length];
+            this.maxEnds = new int[this.methods.length];
+            for (int x = 0; x < this.methods.length; x++) {
+                starts[x] = this.methods[x].getStart();
+                maxEnds[x] = Math.max(this.methods[x].getEnd(), x == 0 ? Integer.MIN_VALUE : maxEnds[x - 1]);
+            }
+        }
+
+        boolean isEmpty() {
+            return methods.length == 0;
+        }
+
+        List<Method> overlapping(final int start, final int end) {
+            // First range starting after end
+            int lo = 0, hi = starts.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] <= end)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+
+            final List<Method> ret = new ArrayList<>();
+            for (int x = lo - 1; x >= 0 && maxEnds[x] >= start; x--) {
+                if (methods[x].getEnd() >= start)
+                    ret.add(methods[x]);
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+ * Chain of mappers applied one after another. Each mapper's class names and remapped descriptors are memoized, as every member
+ * of a class maps its owner again on each hop and the same descriptors come up for many methods. Fields and methods are each
+ * looked up about once per run, so those results are not stored.
+ * Each cache holds at most maxSize entries, once full new results are still computed but no longer stored.
+ * Safe to use from multiple threads as long as the mappers themselves are not modified.
+ */
+public class MapperCache {
+    private final List<IMapper> mappers = new ArrayList<>();
+    private final List<Map<String, String>> classes = new ArrayList<>();
+    private final List<Map<String, String>> descriptors = new ArrayList<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maxSize;
+
+    public MapperCache(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void addMapper(final IMapper mapper) {
+        mappers.add(mapper);
+        classes.add(new ConcurrentHashMap<>());
+        descriptors.add(new ConcurrentHashMap<>());
+    }
+
+    public List<IMapper> getMappers() {
+        return mappers;
+    }
+
+    public void clear() {
+        classes.forEach(Map::clear);
+        descriptors.forEach(Map::clear);
+    }
+
+    // Hits and misses of the class and descriptor caches
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public String mapClass(final String cls) {
+        String ret = cls;
+        for (int x = 0; x < mappers.size(); x++)
+            ret = lookup(classes.get(x), ret, mappers.get(x)::mapClass);
+        return ret;
+    }
+
+    public String mapField(final String cls, final String fld) {
+        String owner = cls;
+        String ret = fld;
+        for (int x = 0; x < mappers.size(); x++) {
+            final IMapper mapper = mappers.get(x);
+            ret = mapper.mapField(owner, ret);
+            owner = lookup(classes.get(x), owner, mapper::mapClass);
+        }
+        return ret;
+    }
+
+    // Signature is the method name immediately followed by its descriptor, the returned value is in the same format.
+    public String mapMethod(final String cls, final String sig) {
+        if (mappers.isEmpty())
+            return sig;
+        int idx = sig.indexOf('(');
+        String owner = cls;
+        String mtd = sig.substring(0, idx);
+        String desc = sig.substring(idx);
+        for (int x = 0; x < mappers.size(); x++) {
+            final IMapper mapper = mappers.get(x);
+            mtd = mapper.mapMethod(owner, mtd, desc);
+            owner = lookup(classes.get(x), owner, mapper::mapClass);
+            desc = lookup(descriptors.get(x), desc, mapper::mapDescriptor);
+        }
+        return mtd + desc;
+    }
+
+    private String lookup(final Map<String, String> cache, final String key, final Function<String, String> compute) {
+        String ret = cache.get(key);
+        if (ret != null) {
+            hits.increment();
+            return ret;
+        }
+        misses.increment();
+        ret = compute.apply(key);
+        if (cache.size() < maxSize)
+            cache.put(key, ret);
+        return ret;
+    }
+}
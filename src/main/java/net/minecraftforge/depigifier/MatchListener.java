@@ -0,0 +1,50 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Field;
+import net.minecraftforge.depigifier.model.Method;
+
+/*
+ * Receives what a Matcher finds. Classes can be compared on several threads, so the events of a phase are not sent as they are found,
+ * but once the phase has compared everything, just before the call marking its end.
+ * Every method is called on the thread running the Matcher. Members are reported in class order, and within a class in the order they were found,
+ * so the events are the same no matter how many threads compared the classes.
+ * Classes reported as missing or added can still be paired up by Matcher.matchStructurally, which then reports them again as matched.
+ */
+public interface MatchListener {
+    default void classMatched(Class old, Class nw) {}
+    default void classMissing(Class old) {}
+    default void classAdded(Class nw) {}
+
+    default void fieldMatched(Field old, Field nw) {}
+    default void fieldMissing(Field old) {}
+    default void fieldAdded(Field nw) {}
+
+    default void methodMatched(Method old, Method nw) {}
+    default void methodMissing(Method old) {}
+    default void methodAdded(Method nw) {}
+
+    // Called at the end of each of the Matcher's phases, with everything found so far
+    default void classesCompared(MatchResult result) {}
+    default void structuralMatched(MatchResult result) {}
+    default void membersCompared(MatchResult result) {}
+}
@@ -0,0 +1,154 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Field;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.Tree;
+import net.minecraftforge.srgutils.IMappingBuilder;
+import net.minecraftforge.srgutils.IMappingFile;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Read only views of everything a Matcher found. They are not copies, so they fill up as the Matcher's phases run,
+ * and shouldn't be read from another thread while one is running. Matched pairs are keyed by the new side, New -> Old.
+ */
+public class MatchResult {
+    private final Tree oldTree;
+    private final Tree newTree;
+    private final Map<Class, Class> classes;
+    private final Map<Field, Field> fields;
+    private final Map<Method, Method> methods;
+    private final Map<Class, Class> structuralClasses;
+    private final List<Class> newClasses;
+    private final List<Field> newFields;
+    private final List<Method> newMethods;
+    private final List<Class> missingClasses;
+    private final List<Field> missingFields;
+    private final List<Method> missingMethods;
+    private final List<String> suggestions;
+
+    MatchResult(final Tree oldTree, final Tree newTree,
+                final Map<Class, Class> classes, final Map<Field, Field> fields, final Map<Method, Method> methods, final Map<Class, Class> structuralClasses,
+                final List<Class> newClasses, final List<Field> newFields, final List<Method> newMethods,
+                final List<Class> missingClasses, final List<Field> missingFields, final List<Method> missingMethods,
+                final List<String> suggestions) {
+        this.oldTree = oldTree;
+        this.newTree = newTree;
+        this.classes = Collections.unmodifiableMap(classes);
+        this.fields = Collections.unmodifiableMap(fields);
+        this.methods = Collections.unmodifiableMap(methods);
+        this.structuralClasses = Collections.unmodifiableMap(structuralClasses);
+        this.newClasses = Collections.unmodifiableList(newClasses);
+        this.newFields = Collections.unmodifiableList(newFields);
+        this.newMethods = Collections.unmodifiableList(newMethods);
+        this.missingClasses = Collections.unmodifiableList(missingClasses);
+        this.missingFields = Collections.unmodifiableList(missingFields);
+        this.missingMethods = Collections.unmodifiableList(missingMethods);
+        this.suggestions = Collections.unmodifiableList(suggestions);
+    }
+
+    public Tree getOldTree() {
+        return oldTree;
+    }
+
+    public Tree getNewTree() {
+        return newTree;
+    }
+
+    // New -> Old
+    public Map<Class, Class> getClasses() {
+        return classes;
+    }
+
+    // New -> Old
+    public Map<Field, Field> getFields() {
+        return fields;
+    }
+
+    // New -> Old
+    public Map<Method, Method> getMethods() {
+        return methods;
+    }
+
+    // Old -> New, the classes paired up by matchStructurally, in the order they were found. Also part of getClasses.
+    public Map<Class, Class> getStructuralClasses() {
+        return structuralClasses;
+    }
+
+    public List<Class> getNewClasses() {
+        return newClasses;
+    }
+
+    public List<Field> getNewFields() {
+        return newFields;
+    }
+
+    public List<Method> getNewMethods() {
+        return newMethods;
+    }
+
+    public List<Class> getMissingClasses() {
+        return missingClasses;
+    }
+
+    public List<Field> getMissingFields() {
+        return missingFields;
+    }
+
+    public List<Method> getMissingMethods() {
+        return missingMethods;
+    }
+
+    /*
+     * New classes that could replace each missing class, as printed to the console: either 'missing candidate',
+     * or the missing class followed by one indented line per candidate.
+     */
+    public List<String> getSuggestions() {
+        return suggestions;
+    }
+
+    /*
+     * Builds an srgutils mapping of everything matched, from the obfuscated names of the old version to those of the new one, like oldtonew.tsrg.
+     * Field descriptors are only included when the old tree knows the field's type. Entries are added sorted, so the result doesn't depend on hash order.
+     */
+    public IMappingFile toMappingFile() {
+        final IMappingBuilder builder = IMappingBuilder.create("old", "new");
+        classes.keySet().stream().sorted(Comparator.comparing(nw -> classes.get(nw).getNewName())).forEach(nw -> {
+            final IMappingBuilder.IClass cls = builder.addClass(classes.get(nw).getNewName(), nw.getNewName());
+            nw.getFields().stream().filter(fields::containsKey).sorted(Comparator.comparing(f -> fields.get(f).getNewName())).forEach(f -> {
+                final Field old = fields.get(f);
+                final IMappingBuilder.IField fld = cls.field(old.getNewName(), f.getNewName());
+                if (old.getType() != null)
+                    fld.descriptor(oldTree.mapDescriptor(old.getType()));
+            });
+            nw.getMethods().stream().filter(methods::containsKey).sorted(Comparator.comparing(m -> methods.get(m).getNewName() + methods.get(m).getNewDesc(oldTree))).forEach(m -> {
+                final Method old = methods.get(m);
+                cls.method(old.getNewDesc(oldTree), old.getNewName(), m.getNewName());
+            });
+        });
+        return builder.build().getMap("old", "new");
+    }
+}
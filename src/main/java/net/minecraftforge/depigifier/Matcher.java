@@ -24,20 +24,20 @@ import net.minecraftforge.depigifier.model.Class;
 import net.minecraftforge.depigifier.model.Field;
 import net.minecraftforge.depigifier.model.Method;
 import net.minecraftforge.depigifier.model.Tree;
+import net.minecraftforge.srgutils.IMappingFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.file.Files;
+import java.io.PrintStream;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiConsumer;
-import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class Matcher {
 
@@ -45,8 +45,19 @@ public class Matcher {
     private final Tree oldTree;
     private final Tree newTree;
     private final Path outputDir;
-    private final List<IMapper> mappers = new ArrayList<>();
+    private final MapperCache mappers = new MapperCache(1 << 20);
     private List<Class> existingClasses;
+    private int parallelism = 1;
+    private boolean overrides;
+    private boolean lineMatching;
+    private Set<IMappingFile.Format> formats = Collections.emptySet();
+    private boolean reversed;
+    private Compression compression = Compression.NONE;
+    private Metrics metrics = new Metrics();
+    private PrintStream console = System.out;
+    private final List<MatchListener> listeners = new ArrayList<>();
+    // Built when first needed, so it uses the parallelism and metrics set up until then.
+    private ReportFiles files;
 
     private Map<Class, Class> forcedClasses = new HashMap<>();
     private Map<Field, Field> forcedFields = new HashMap<>();
@@ -60,94 +71,244 @@ public class Matcher {
     private List<Field> missingFields = new ArrayList<>();
     private List<Method> missingMethods = new ArrayList<>();
 
+    private Map<Class, Class> structuralClasses = new LinkedHashMap<>();
+    private List<String> suggestions = new ArrayList<>();
+    private final MatchResult result;
+
+    // Nothing is written to disk without an output directory, the results are then only available from getResult and listeners.
+    public Matcher(final Tree oldTree, final Tree newTree) {
+        this(oldTree, newTree, null);
+    }
+
     public Matcher(final Tree oldTree, final Tree newTree, final Path output) {
         this.oldTree = oldTree;
         this.newTree = newTree;
         this.outputDir = output;
+        this.result = new MatchResult(oldTree, newTree, forcedClasses, forcedFields, forcedMethods, structuralClasses,
+            newClasses, newFields, newMethods, missingClasses, missingFields, missingMethods, suggestions);
     }
 
-    private static String fieldToTSRGString(Field f) {
-        return f.getOwner().getOldName() + " " + f.getOldName();
+    // Number of worker threads used to compare classes and write reports, anything less than 2 runs on the calling thread.
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+        this.files = null;
     }
 
-    private static String methodToTSRGString(Method m) {
-        return m.getOwner().getOldName() + " " + m.getOldName() + " " + m.getOldDesc();
+    // Matches renamed methods across override families, needs the class parents read by the JarScanner for both trees.
+    public void setOverrides(final boolean overrides) {
+        this.overrides = overrides;
     }
 
-    public void computeClassListDifferences() {
-        this.existingClasses = new ArrayList<>();
-        differenceSet(oldTree::getClassNames, newTree::getClassNames, this::mapClass, oldTree::tryClass, newTree::tryClass, forcedClasses::put, ()->newClasses, ()-> existingClasses, ()-> missingClasses);
-        writeFile(outputDir.resolve("newclasses.txt"), listBuilder(()->newClasses, Class::getOldName));
-        writeFile(outputDir.resolve("missingclasses.txt"), listBuilder(()->missingClasses, Class::getOldName));
-        System.out.println("missing/new/total");
-        System.out.println("Classes: " + missingClasses.size() + "/" + newClasses.size() + "/" + newTree.getClasses().size());
+    // Matches renamed methods of each class by their line ranges, which are only known for trees read from ProGuard maps.
+    public void setLineMatching(final boolean lineMatching) {
+        this.lineMatching = lineMatching;
     }
 
-    public void compareExistingClasses() {
-        existingClasses.forEach(aClass -> compareClass(aClass, newFields, newMethods, missingFields, missingMethods));
-        writeFile(outputDir.resolve("newfields.txt"), listBuilder(()->newFields, Matcher::fieldToTSRGString));
-        writeFile(outputDir.resolve("missingfields.txt"), listBuilder(()->missingFields, Matcher::fieldToTSRGString));
-        writeFile(outputDir.resolve("newmethods.txt"), listBuilder(()->newMethods, Matcher::methodToTSRGString));
-        writeFile(outputDir.resolve("missingmethods.txt"), listBuilder(()->missingMethods, Matcher::methodToTSRGString));
-        final Path tsrgOut = outputDir.resolve("oldtonew.tsrg");
-        final List<String> tsrgLines = new ArrayList<>();
-        existingClasses.stream().sorted(
-                Comparator.comparing(aClass -> forcedClasses.get(aClass).getNewName(),
-                        Comparator.comparingInt(String::length).thenComparing(String::compareTo))).
-                forEach(cl -> buildTSRG(cl, tsrgLines));
-        Exceptions.sneak().run(()->Files.write(tsrgOut, tsrgLines, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE));
-        System.out.println("Fields : " + missingFields.size() + "/" + newFields.size() + "/" + newTree.getClasses().stream().mapToInt(c -> c.getFields().size()).sum());
-        System.out.println("Methods: " + missingMethods.size() + "/" + newMethods.size() + "/" + newTree.getClasses().stream().mapToInt(c -> c.getMethods().size()).sum());
-
-        dumpMagiDots();
-
-        missingClasses.stream().sorted((c1,c2) -> c1.getOldName().compareTo(c2.getOldName())).forEach(m -> {
-            String name = m.getOldName().substring(m.getOldName().lastIndexOf('/')+1);
-            if (!name.equals("package-info")) {
-                List<String> lst = newClasses.stream().map(Class::getOldName).filter(n -> n.endsWith(name)).collect(Collectors.toList());
-                if (lst.size() == 1)
-                    System.out.println(m.getOldName() + " " + lst.get(0));
-                else if (!lst.isEmpty()) {
-                    System.out.println(m.getOldName());
-                    lst.forEach(l -> System.out.println("  " + l));
+    // Mapping formats written to the mappings directory next to oldtonew.tsrg, optionally in both directions.
+    public void setMappingFormats(final Collection<IMappingFile.Format> formats, final boolean reversed) {
+        this.formats = formats.isEmpty() ? Collections.emptySet() : EnumSet.copyOf(formats);
+        this.reversed = reversed;
+        this.files = null;
+    }
+
+    // Compresses every file written to the output directory, appending the compression's extension to its name.
+    public void setCompression(final Compression compression) {
+        this.compression = compression;
+        this.files = null;
+    }
+
+    // Where the timings of each phase are recorded
+    public void setMetrics(final Metrics metrics) {
+        this.metrics = metrics;
+        this.files = null;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    // Where the summaries are printed, defaults to standard out.
+    public void setConsole(final PrintStream console) {
+        this.console = console;
+    }
+
+    // Listeners are called after the output files of each phase have been written
+    public void addListener(final MatchListener listener) {
+        listeners.add(listener);
+    }
+
+    public MatchResult getResult() {
+        return result;
+    }
+
+    //Warning: Data is not copied, Do not modify. New -> Old
+    public Map<Class, Class> getForcedClasses() {
+        return forcedClasses;
+    }
+
+    //Warning: Data is not copied, Do not modify. New -> Old
+    public Map<Field, Field> getForcedFields() {
+        return forcedFields;
+    }
+
+    //Warning: Data is not copied, Do not modify. New -> Old
+    public Map<Method, Method> getForcedMethods() {
+        return forcedMethods;
+    }
+
+    private void fire(final Consumer<MatchListener> event) {
+        if (outputDir != null) {
+            if (files == null)
+                files = new ReportFiles(outputDir, parallelism, metrics, formats, reversed, compression);
+            event.accept(files);
+        }
+        listeners.forEach(event);
+    }
+
+    public MatchResult computeClassListDifferences() {
+        try (Metrics.Phase phase = metrics.start("computeClassListDifferences", mappers)) {
+            phase.items(oldTree.getClasses().size() + newTree.getClasses().size());
+            this.existingClasses = new ArrayList<>();
+            differenceSet(oldTree::getClassNames, newTree::getClassNames, this::mapClass, oldTree::tryClass, newTree::tryClass, forcedClasses::put, ()->newClasses, ()-> existingClasses, ()-> missingClasses);
+            if (!listeners.isEmpty()) {
+                missingClasses.forEach(old -> fire(l -> l.classMissing(old)));
+                existingClasses.forEach(nw -> fire(l -> l.classMatched(forcedClasses.get(nw), nw)));
+                newClasses.forEach(nw -> fire(l -> l.classAdded(nw)));
+            }
+            console.println("missing/new/total");
+            console.println("Classes: " + missingClasses.size() + "/" + newClasses.size() + "/" + newTree.getClasses().size());
+            fire(l -> l.classesCompared(result));
+        }
+        return result;
+    }
+
+    /*
+     * Pairs up missing and new classes that have the same shape, see StructuralMatcher.
+     * Matches are treated like any other existing class, and are added as a mapper so member descriptors referencing them line up.
+     */
+    public MatchResult matchStructurally() {
+        try (Metrics.Phase phase = metrics.start("matchStructurally", mappers)) {
+            phase.items(missingClasses.size() + newClasses.size());
+            final Map<Class, Class> found = new StructuralMatcher(oldTree, newTree, forcedClasses).match(missingClasses, newClasses);
+            final Tree renames = new Tree();
+            found.forEach((old, nw) -> {
+                forcedClasses.put(nw, old);
+                existingClasses.add(nw);
+                renames.getClass(mapClass(old.getOldName())).rename(nw.getOldName());
+                fire(l -> l.classMatched(old, nw));
+            });
+            structuralClasses.putAll(found);
+            missingClasses.removeAll(new HashSet<>(found.keySet()));
+            newClasses.removeAll(new HashSet<>(found.values()));
+            addMapper(renames);
+
+            console.println("Structural: " + found.size() + " (" + missingClasses.size() + "/" + newClasses.size() + " left)");
+            fire(l -> l.structuralMatched(result));
+        }
+        return result;
+    }
+
+    public MatchResult compareExistingClasses() {
+        try (Metrics.Phase phase = metrics.start("compareExistingClasses", mappers)) {
+            phase.items(existingClasses.size());
+            final List<ClassComparison> results;
+            try (Metrics.Phase compare = metrics.start("compareClasses", mappers)) {
+                results = compareClasses();
+                compare.items(existingClasses.size());
+            }
+            if (overrides) {
+                try (Metrics.Phase propagate = metrics.start("matchOverrides")) {
+                    propagate.items(matchOverrides(results));
                 }
             }
-        });
+            // Merge in class order so the output is the same no matter how many threads did the work.
+            results.forEach(cmp -> {
+                newFields.addAll(cmp.newFields);
+                newMethods.addAll(cmp.newMethods);
+                missingFields.addAll(cmp.missingFields);
+                missingMethods.addAll(cmp.missingMethods);
+                forcedFields.putAll(cmp.forcedFields);
+                forcedMethods.putAll(cmp.forcedMethods);
+                if (!listeners.isEmpty()) {
+                    cmp.missingFields.forEach(old -> fire(l -> l.fieldMissing(old)));
+                    cmp.forcedFields.forEach((nw, old) -> fire(l -> l.fieldMatched(old, nw)));
+                    cmp.newFields.forEach(nw -> fire(l -> l.fieldAdded(nw)));
+                    cmp.missingMethods.forEach(old -> fire(l -> l.methodMissing(old)));
+                    cmp.forcedMethods.forEach((nw, old) -> fire(l -> l.methodMatched(old, nw)));
+                    cmp.newMethods.forEach(nw -> fire(l -> l.methodAdded(nw)));
+                }
+            });
+            console.println("Fields : " + missingFields.size() + "/" + newFields.size() + "/" + newTree.getClasses().stream().mapToInt(c -> c.getFields().size()).sum());
+            console.println("Methods: " + missingMethods.size() + "/" + newMethods.size() + "/" + newTree.getClasses().stream().mapToInt(c -> c.getMethods().size()).sum());
+
+            try (Metrics.Phase suggest = metrics.start("suggestClasses")) {
+                suggestions.clear();
+                suggestions.addAll(suggestClasses());
+                suggest.items(missingClasses.size());
+            }
+            suggestions.forEach(console::println);
+            fire(l -> l.membersCompared(result));
+        }
+        return result;
     }
 
-    private void dumpMagiDots() {
-        Function<Field, String> fts = f -> f.getOwner().getNewName() + "." + f.getNewName();
-        BiFunction<Method, Tree, String> mts = (m, t) -> m.getOwner().getNewName() + "." + m.getNewName() + " " + m.getNewDesc(t);
-
-        writeFile(outputDir.resolve("joined_forced.txt"), () -> {
-            List<String> clss = forcedClasses.keySet().stream().map(nw -> forcedClasses.get(nw).getNewName() + " " + nw.getNewName()).collect(Collectors.toList());
-            Collections.sort(clss, (o1, o2) -> Sorters.CLASSES.compare(o1.split(" ")[0], o2.split(" ")[0]));
-            clss.add(0, "[CLASSES]");
-            List<String> flds = forcedFields.keySet().stream().map(nw -> fts.apply(forcedFields.get(nw)) + " " + fts.apply(nw) ).collect(Collectors.toList());
-            Collections.sort(flds, (o1, o2) -> Sorters.FIELDS.compare(o1.split(" ")[0], o2.split(" ")[0]));
-            flds.add(0, "[FIELDS]");
-            List<String> mtds = forcedMethods.keySet().stream().map(nw -> mts.apply(forcedMethods.get(nw), oldTree) + " " + mts.apply(nw, newTree)).collect(Collectors.toList());
-            Collections.sort(mtds, (o1, o2) -> Sorters.METHODS.compare(o1.split(" ")[0] + " " + o1.split(" ")[1], o2.split(" ")[0] + " " + o2.split(" ")[1]));
-            mtds.add(0, "[METHODS]");
-
-            //Merge them all
-            clss.addAll(flds);
-            clss.addAll(mtds);
-            return clss;
+    /*
+     * Suggests new classes for every missing class, any new class whose name ends with the missing class's simple name is a candidate.
+     * The new classes' simple names are reversed and sorted once, which turns every suffix query into a binary search for a prefix.
+     */
+    private List<String> suggestClasses() {
+        final String[][] index = newClasses.stream()
+            .map(c -> new String[] { reverse(c.getOldName().substring(c.getOldName().lastIndexOf('/') + 1)), c.getOldName() })
+            .sorted(Comparator.comparing((String[] e) -> e[0]).thenComparing(e -> e[1]))
+            .toArray(String[][]::new);
+
+        final List<String> ret = new ArrayList<>();
+        missingClasses.stream().map(Class::getOldName).sorted().forEach(m -> {
+            String name = m.substring(m.lastIndexOf('/')+1);
+            if (name.equals("package-info"))
+                return;
+
+            String suffix = reverse(name);
+            int lo = 0, hi = index.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (index[mid][0].compareTo(suffix) < 0)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            List<String> lst = new ArrayList<>();
+            for (int x = lo; x < index.length && index[x][0].startsWith(suffix); x++)
+                lst.add(index[x][1]);
+            Collections.sort(lst);
+
+            if (lst.size() == 1)
+                ret.add(m + " " + lst.get(0));
+            else if (!lst.isEmpty()) {
+                ret.add(m);
+                lst.forEach(l -> ret.add("  " + l));
+            }
         });
+        return ret;
     }
 
-    private void buildTSRG(final Class nw, final List<String> tsrgLines) {
-        tsrgLines.add(forcedClasses.get(nw).getNewName() + " " +nw.getNewName());
-        tsrgLines.addAll(nw.getFields().stream().filter(f-> Objects.nonNull(forcedFields.get(f))).map(f->"\t"+forcedFields.get(f).getNewName()+" " + f.getNewName()).sorted().collect(Collectors.toList()));
-        tsrgLines.addAll(nw.getMethods().stream().filter(m->Objects.nonNull(forcedMethods.get(m))).map(m->"\t"+forcedMethods.get(m).getNewName() + " " + forcedMethods.get(m).getNewDesc(oldTree)+" " + m.getNewName()).sorted().collect(Collectors.toList()));
+    private static String reverse(final String value) {
+        return new StringBuilder(value).reverse().toString();
     }
 
-    private <T> Supplier<List<String>> listBuilder(final Supplier<Collection<T>> t, final Function<T, String> stringFunction) {
-        return () -> t.get().stream().map(stringFunction).sorted().collect(Collectors.toList());
-    }
-    private void writeFile(final Path path, final Supplier<List<String>> lines) {
-        Exceptions.sneak().run(()->Files.write(path, lines.get(), StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE));
+    /*
+     * Writes the obfuscated old -> new names of every matched class, field and method. The maps are New -> Old, like the ones this Matcher builds,
+     * but can come from anywhere as long as the old side belongs to oldTree.
+     */
+    static void buildTSRG(final Tree oldTree, final Map<Class, Class> forcedClasses, final Map<Field, Field> forcedFields, final Map<Method, Method> forcedMethods, final Consumer<String> tsrgLines) {
+        forcedClasses.keySet().stream().sorted(
+                Comparator.comparing(aClass -> forcedClasses.get(aClass).getNewName(),
+                        Comparator.comparingInt(String::length).thenComparing(String::compareTo))).
+                forEach(nw -> {
+            tsrgLines.accept(forcedClasses.get(nw).getNewName() + " " +nw.getNewName());
+            nw.getFields().stream().filter(f-> Objects.nonNull(forcedFields.get(f))).map(f->"\t"+forcedFields.get(f).getNewName()+" " + f.getNewName()).sorted().forEach(tsrgLines);
+            nw.getMethods().stream().filter(m->Objects.nonNull(forcedMethods.get(m))).map(m->"\t"+forcedMethods.get(m).getNewName() + " " + forcedMethods.get(m).getNewDesc(oldTree)+" " + m.getNewName()).sorted().forEach(tsrgLines);
+        });
     }
 
     private <T> void differenceSet(final Supplier<Set<String>> old, final Supplier<Set<String>> nw,
@@ -155,60 +316,178 @@ public class Matcher {
                                    final Function<String,T> oldLookup, final Function<String,T> newLookup,
                                    final BiConsumer<T,T> connector,
                                    final Supplier<List<T>> newTracker, final Supplier<List<T>> existingTracker, final Supplier<List<T>> missingTracker) {
-        final Map<String, String> transformedOldNames = old.get().stream().map(o -> new HashMap.SimpleImmutableEntry<>(oldNameTransformer.apply(o), o)).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        SetDifference<String> sd = new SetDifference<>(transformedOldNames.keySet(), nw.get());
-        final HashSet<String> newValues = sd.getRightOnly();
-        final HashSet<String> missingValues = sd.getLeftOnly();
-        final HashSet<String> matchedValues = sd.getCommon();
-        final List<T> commonValues = matchedValues.stream().map(n -> new HashMap.SimpleImmutableEntry<>(oldLookup.apply(transformedOldNames.get(n)), newLookup.apply(n))).
-                peek(e -> connector.accept(e.getValue(), e.getKey())).
-                map(AbstractMap.SimpleImmutableEntry::getValue).
-                collect(Collectors.toList());
-        missingTracker.get().addAll(missingValues.stream().map(n -> oldLookup.apply(transformedOldNames.get(n))).collect(Collectors.toList()));
-        existingTracker.get().addAll(commonValues);
-        newTracker.get().addAll(newValues.stream().map(newLookup).collect(Collectors.toList()));
-    }
-
-    private void compareClass(final Class entry, final List<Field> newFieldTracked, final List<Method> newMethodTracked, final List<Field> missingFields, final List<Method> missingMethods) {
+        final List<T> newValues = newTracker.get();
+        final List<T> existingValues = existingTracker.get();
+        final List<T> missingValues = missingTracker.get();
+        SetDifference.compare(old.get(), oldNameTransformer, nw.get(),
+            o -> missingValues.add(oldLookup.apply(o)),
+            (o, n) -> {
+                final T value = newLookup.apply(n);
+                connector.accept(value, oldLookup.apply(o));
+                existingValues.add(value);
+            },
+            n -> newValues.add(newLookup.apply(n)));
+    }
+
+    private List<ClassComparison> compareClasses() {
+        if (parallelism < 2)
+            return existingClasses.stream().map(this::compareClass).collect(Collectors.toList());
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return Exceptions.sneak().get(() -> pool.submit(() -> existingClasses.parallelStream().map(this::compareClass).collect(Collectors.toList())).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private ClassComparison compareClass(final Class entry) {
         final Class old = forcedClasses.get(entry);
         final Class nw = entry;
-        BiFunction<Class, String, Method> tryMethod = (cls, sig) -> {
-            int idx = sig.indexOf('(');
-            return cls.tryMethod(sig.substring(0, idx), sig.substring(idx));
-        };
+        final ClassComparison ret = new ClassComparison();
 
-        differenceSet(old::getFieldNames, nw::getFieldNames, fld -> mapField(old.getOldName(), fld), old::tryField, nw::tryField, forcedFields::put,()->newFieldTracked, ArrayList::new, ()->missingFields);
-        differenceSet(old::getMethodSignatures, nw::getMethodSignatures, s -> mapMethod(old.getOldName(), s), sig -> tryMethod.apply(old, sig), sig -> tryMethod.apply(nw, sig), forcedMethods::put,()->newMethodTracked, ArrayList::new, ()->missingMethods);
+        differenceSet(old::getFieldNames, nw::getFieldNames, fld -> mapField(old.getOldName(), fld), old::tryField, nw::tryField, ret.forcedFields::put, ()->ret.newFields, ArrayList::new, ()->ret.missingFields);
+        differenceSet(old::getMethodSignatures, nw::getMethodSignatures, s -> mapMethod(old.getOldName(), s), old::tryMethod, nw::tryMethod, ret.forcedMethods::put, ()->ret.newMethods, ArrayList::new, ()->ret.missingMethods);
+        matchBodies(ret);
+        if (lineMatching)
+            matchLines(old, ret);
+        return ret;
+    }
+
+    // Pairs up renamed methods whose bytecode is the same, see JarScanner. Only bodies that are unique on both sides are trusted.
+    private static void matchBodies(final ClassComparison result) {
+        final Map<Long, Method> olds = uniqueBodies(result.missingMethods);
+        if (olds.isEmpty())
+            return;
+        final Map<Long, Method> nws = uniqueBodies(result.newMethods);
+        olds.forEach((hash, old) -> {
+            Method nw = nws.get(hash);
+            if (nw != null) {
+                result.forcedMethods.put(nw, old);
+                result.missingMethods.remove(old);
+                result.newMethods.remove(nw);
+            }
+        });
+    }
+
+    // Pairs up renamed methods whose line ranges overlap, see LineMatcher. Descriptors have to match once mapped to the new tree.
+    private void matchLines(final Class old, final ClassComparison result) {
+        if (result.missingMethods.isEmpty() || result.newMethods.isEmpty())
+            return;
+        final LineMatcher matcher = new LineMatcher(m -> {
+            final String sig = mapMethod(old.getOldName(), m.getOldName() + m.getOldDesc());
+            return sig.substring(sig.indexOf('('));
+        });
+        final Map<Method, Method> found = matcher.match(result.forcedMethods, result.missingMethods, result.newMethods);
+        if (found.isEmpty())
+            return;
+        result.forcedMethods.putAll(found);
+        final Set<Method> matched = new HashSet<>(found.values());
+        result.missingMethods.removeIf(matched::contains);
+        result.newMethods.removeIf(found::containsKey);
+    }
+
+    /*
+     * Every method matched in one class pairs up its override family in the new tree with its family in the old tree.
+     * The rest of the two families are then matched in every other pair of classes, where they are still new and missing.
+     * Families matched to more than one other family, and classes with more than one unmatched method of a family, are left alone.
+     */
+    private int matchOverrides(final List<ClassComparison> results) {
+        final OverrideFamilies oldFamilies = new OverrideFamilies(oldTree);
+        final OverrideFamilies newFamilies = new OverrideFamilies(newTree);
+
+        // New root -> Old root
+        final Map<Method, Method> families = new HashMap<>();
+        final Set<Method> ambiguous = new HashSet<>();
+        results.forEach(cmp -> cmp.forcedMethods.forEach((nw, old) -> {
+            if (newFamilies.hasFamily(nw) || oldFamilies.hasFamily(old))
+                putUnique(families, ambiguous, newFamilies.root(nw), oldFamilies.root(old));
+        }));
+        if (families.isEmpty())
+            return 0;
+
+        int ret = 0;
+        for (ClassComparison cmp : results) {
+            if (cmp.missingMethods.isEmpty() || cmp.newMethods.isEmpty())
+                continue;
+            // Old root -> Missing method, and New root -> New method
+            final Map<Method, Method> missing = new HashMap<>();
+            final Map<Method, Method> added = new LinkedHashMap<>();
+            final Set<Method> duplicates = new HashSet<>();
+            cmp.missingMethods.stream().filter(oldFamilies::hasFamily).forEach(old -> putUnique(missing, duplicates, oldFamilies.root(old), old));
+            cmp.newMethods.stream().filter(newFamilies::hasFamily).forEach(nw -> putUnique(added, duplicates, newFamilies.root(nw), nw));
+
+            final Map<Method, Method> found = new LinkedHashMap<>();
+            added.forEach((newRoot, nw) -> {
+                final Method oldRoot = families.get(newRoot);
+                final Method old = oldRoot == null ? null : missing.get(oldRoot);
+                if (old != null)
+                    found.put(nw, old);
+            });
+            if (found.isEmpty())
+                continue;
+
+            cmp.forcedMethods.putAll(found);
+            final Set<Method> matched = new HashSet<>(found.values());
+            cmp.missingMethods.removeIf(matched::contains);
+            cmp.newMethods.removeIf(found::containsKey);
+            ret += found.size();
+        }
+        return ret;
+    }
+
+    // Keys seen with two different values are removed, and remembered so they aren't added again.
+    private static <K, V> void putUnique(final Map<K, V> map, final Set<K> duplicates, final K key, final V value) {
+        if (duplicates.contains(key))
+            return;
+        final V existing = map.putIfAbsent(key, value);
+        if (existing != null && existing != value) {
+            map.remove(key);
+            duplicates.add(key);
+        }
+    }
+
+    private static Map<Long, Method> uniqueBodies(final List<Method> methods) {
+        final Map<Long, Method> ret = new HashMap<>();
+        final Set<Long> duplicates = new HashSet<>();
+        methods.stream().filter(Method::hasBody).forEach(m -> {
+            if (ret.put(m.getBodyHash(), m) != null)
+                duplicates.add(m.getBodyHash());
+        });
+        duplicates.forEach(ret::remove);
+        return ret;
     }
 
     public void addMapper(final IMapper mapper) {
-        mappers.add(mapper);
+        mappers.addMapper(mapper);
+    }
+
+    public MapperCache getMapperCache() {
+        return mappers;
     }
 
     private String mapClass(String cls) {
-        for (IMapper mapper : mappers)
-            cls = mapper.mapClass(cls);
-        return cls;
+        return mappers.mapClass(cls);
     }
 
     private String mapField(String cls, String fld) {
-        for (IMapper mapper : mappers) {
-            fld = mapper.mapField(cls, fld);
-            cls = mapper.mapClass(cls);
-        }
-        return fld;
+        return mappers.mapField(cls, fld);
     }
 
     private String mapMethod(String cls, String sig) {
-        int idx = sig.indexOf('(');
-        String mtd = sig.substring(0, idx);
-        String desc = sig.substring(idx);
-        for (IMapper mapper : mappers) {
-            mtd = mapper.mapMethod(cls, mtd, desc);
-            cls = mapper.mapClass(cls);
-            desc = mapper.mapDescriptor(desc);
-        }
+        return mappers.mapMethod(cls, sig);
+    }
 
-        return mtd + desc;
+    /*
+     * Results of comparing a single class, kept separate so classes can be compared concurrently and merged afterwards.
+     */
+    private static class ClassComparison {
+        // Linked so listeners see the matches in the order they were found
+        private final Map<Field, Field> forcedFields = new LinkedHashMap<>();
+        private final Map<Method, Method> forcedMethods = new LinkedHashMap<>();
+        private final List<Field> newFields = new ArrayList<>();
+        private final List<Method> newMethods = new ArrayList<>();
+        private final List<Field> missingFields = new ArrayList<>();
+        private final List<Method> missingMethods = new ArrayList<>();
     }
 }
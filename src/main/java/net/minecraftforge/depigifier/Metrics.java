@@ -0,0 +1,220 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import com.sun.management.ThreadMXBean;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Records how long each phase of a run took, how much it allocated, how many items it handled and how the mapper cache did while it ran.
+ * Every phase is also emitted as a JFR event when the JVM supports it, so they show up next to the GC and allocation data of a recording.
+ *
+ * Allocation is measured on the thread that started the phase, work a phase hands to other threads is not included.
+ */
+public class Metrics {
+    // PhaseEvent is compiled on its own as older Java 8 builds lack jdk.jfr, both are null when it can't be loaded.
+    private static final MethodHandle EVENT_START = findEvent("start", MethodType.methodType(Object.class));
+    private static final MethodHandle EVENT_FINISH = findEvent("finish", MethodType.methodType(void.class, Object.class, String.class, long.class, long.class, long.class, long.class));
+    private static final ThreadMXBean THREADS = getThreadBean();
+
+    private final String prefix;
+    private final List<Phase> phases;
+
+    public Metrics() {
+        this("", Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    private Metrics(final String prefix, final List<Phase> phases) {
+        this.prefix = prefix;
+        this.phases = phases;
+    }
+
+    // Records into the same list, with every phase name prefixed. Used to tell the steps of a chain apart.
+    public Metrics scoped(final String name) {
+        return new Metrics(prefix + name + "/", phases);
+    }
+
+    public Phase start(final String name) {
+        return start(name, null);
+    }
+
+    public Phase start(final String name, final MapperCache cache) {
+        return new Phase(prefix + name, cache);
+    }
+
+    // Finished phases, in the order they finished
+    public List<Phase> getPhases() {
+        synchronized (phases) {
+            return new ArrayList<>(phases);
+        }
+    }
+
+    public void write(final Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("{\n  \"phases\": [");
+            final List<Phase> finished = getPhases();
+            for (int x = 0; x < finished.size(); x++) {
+                final Phase phase = finished.get(x);
+                out.write(x == 0 ? "\n" : ",\n");
+                out.write("    {\"name\": " + quote(phase.name) + ", \"thread\": " + quote(phase.thread) +
+                    ", \"wallNanos\": " + phase.wall + ", \"allocatedBytes\": " + phase.allocated + ", \"items\": " + phase.items +
+                    ", \"cacheHits\": " + phase.hits + ", \"cacheMisses\": " + phase.misses + "}");
+            }
+            out.write("\n  ]\n}\n");
+        }
+    }
+
+    private static String quote(final String value) {
+        final StringBuilder ret = new StringBuilder(value.length() + 2).append('"');
+        for (int x = 0; x < value.length(); x++) {
+            char c = value.charAt(x);
+            if (c == '"' || c == '\\')
+                ret.append('\\').append(c);
+            else if (c < 0x20)
+                ret.append(String.format("\\u%04x", (int)c));
+            else
+                ret.append(c);
+        }
+        return ret.append('"').toString();
+    }
+
+    private static long allocated() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static MethodHandle findEvent(final String name, final MethodType type) {
+        try {
+            return MethodHandles.lookup().findStatic(Class.forName("net.minecraftforge.depigifier.PhaseEvent"), name, type);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // No JFR in this JVM, phases are only recorded here
+            return null;
+        }
+    }
+
+    private static Object startEvent() {
+        try {
+            return EVENT_START.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not start phase event", e);
+        }
+    }
+
+    private static void finishEvent(final Object event, final String name, final long items, final long allocated, final long hits, final long misses) {
+        try {
+            EVENT_FINISH.invoke(event, name, items, allocated, hits, misses);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not finish phase event", e);
+        }
+    }
+
+    private static ThreadMXBean getThreadBean() {
+        try {
+            Object bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof ThreadMXBean && ((ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+                return (ThreadMXBean)bean;
+        } catch (LinkageError e) {
+            // Not a HotSpot based JVM, allocation is reported as -1
+        }
+        return null;
+    }
+
+    public class Phase implements AutoCloseable {
+        private final String name;
+        private final String thread;
+        private final MapperCache cache;
+        private final Object event;
+        private final long startTime;
+        private final long startAllocated;
+        private final long startHits;
+        private final long startMisses;
+
+        private long wall;
+        private long allocated = -1;
+        private long items;
+        private long hits;
+        private long misses;
+
+        private Phase(final String name, final MapperCache cache) {
+            this.name = name;
+            this.thread = Thread.currentThread().getName();
+            this.cache = cache;
+            this.startHits = cache == null ? 0 : cache.getHits();
+            this.startMisses = cache == null ? 0 : cache.getMisses();
+            this.event = EVENT_START == null ? null : startEvent();
+            this.startAllocated = allocated();
+            this.startTime = System.nanoTime();
+        }
+
+        // Adds to the number of classes, members or lines this phase handled
+        public Phase items(final long count) {
+            this.items += count;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            wall = System.nanoTime() - startTime;
+            if (startAllocated != -1)
+                allocated = allocated() - startAllocated;
+            if (cache != null) {
+                hits = cache.getHits() - startHits;
+                misses = cache.getMisses() - startMisses;
+            }
+            if (event != null)
+                finishEvent(event, name, items, allocated, hits, misses);
+            phases.add(this);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wall;
+        }
+
+        public long getAllocatedBytes() {
+            return allocated;
+        }
+
+        public long getItems() {
+            return items;
+        }
+
+        public long getCacheHits() {
+            return hits;
+        }
+
+        public long getCacheMisses() {
+            return misses;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.Tree;
+
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Groups the methods of a tree into override families, using the class parents recorded by the JarScanner.
+ * A method joins the family of every method with the same old name and descriptor in any of its class's ancestors.
+ * Constructors, static and private methods never override or get overridden, so they are left out, going by the access flags the JarScanner recorded.
+ * Families are merged with a union-find, so a whole hierarchy is grouped in close to linear time.
+ */
+public class OverrideFamilies {
+    private final Map<Method, Integer> ids = new HashMap<>();
+    private final Method[] methods;
+    private final int[] parents;
+    private final int[] sizes;
+
+    public OverrideFamilies(final Tree tree) {
+        tree.getClasses().forEach(cls -> cls.getMethods().forEach(mtd -> ids.put(mtd, ids.size())));
+        methods = new Method[ids.size()];
+        ids.forEach((mtd, id) -> methods[id] = mtd);
+        parents = new int[methods.length];
+        sizes = new int[methods.length];
+        for (int x = 0; x < parents.length; x++) {
+            parents[x] = x;
+            sizes[x] = 1;
+        }
+
+        for (Class cls : tree.getClasses()) {
+            if (cls.getParents().isEmpty())
+                continue;
+            final Set<Class> ancestors = ancestors(cls);
+            for (Method mtd : cls.getMethods()) {
+                if (!overridable(mtd))
+                    continue;
+                for (Class ancestor : ancestors) {
+                    final Method sup = ancestor.tryMethod(mtd.getOldName(), mtd.getOldDesc());
+                    if (sup != null && overridable(sup))
+                        union(ids.get(mtd), ids.get(sup));
+                }
+            }
+        }
+    }
+
+    private static boolean overridable(final Method mtd) {
+        return !mtd.getOldName().startsWith("<") && (mtd.getAccess() & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == 0;
+    }
+
+    private static Set<Class> ancestors(final Class cls) {
+        final Set<Class> ret = new HashSet<>();
+        final Deque<Class> queue = new ArrayDeque<>(cls.getParents());
+        while (!queue.isEmpty()) {
+            final Class next = queue.poll();
+            if (next != cls && ret.add(next))
+                queue.addAll(next.getParents());
+        }
+        return ret;
+    }
+
+    // Shortens the path on every lookup, so this isn't safe to use from several threads at once
+    private int find(int id) {
+        while (parents[id] != id) {
+            parents[id] = parents[parents[id]];
+            id = parents[id];
+        }
+        return id;
+    }
+
+    private void union(final int a, final int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb)
+            return;
+        if (sizes[ra] < sizes[rb]) {
+            int tmp = ra;
+            ra = rb;
+            rb = tmp;
+        }
+        parents[rb] = ra;
+        sizes[ra] += sizes[rb];
+    }
+
+    // Every method of a family has the same root, methods of other trees and methods that override nothing are their own root.
+    public Method root(final Method mtd) {
+        final Integer id = ids.get(mtd);
+        return id == null ? mtd : methods[find(id)];
+    }
+
+    public boolean hasFamily(final Method mtd) {
+        final Integer id = ids.get(mtd);
+        return id != null && sizes[find(id)] > 1;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import com.machinezoo.noexception.Exceptions;
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Field;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.Tree;
+import net.minecraftforge.srgutils.IMappingFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+ * Writes a Matcher's results to text files in the output directory, at the end of every phase.
+ * Each phase waits for its reports to be written, as they read the result lazily and the next phase changes it.
+ */
+class ReportFiles implements MatchListener {
+    private final Path outputDir;
+    private final ReportWriter reports;
+    private final Metrics metrics;
+    private final Set<IMappingFile.Format> formats;
+    private final boolean reversed;
+
+    // Every format is written as mappings/oldtonew.<format>, and as mappings/newtoold.<format> too if reversed.
+    ReportFiles(final Path outputDir, final int parallelism, final Metrics metrics, final Set<IMappingFile.Format> formats, final boolean reversed, final Compression compression) {
+        this.outputDir = outputDir;
+        this.reports = new ReportWriter(parallelism, metrics, compression);
+        this.metrics = metrics;
+        this.formats = formats;
+        this.reversed = reversed;
+    }
+
+    @Override
+    public void classesCompared(final MatchResult result) {
+        writeFile(outputDir.resolve("newclasses.txt"), listBuilder(result::getNewClasses, Class::getOldName));
+        writeFile(outputDir.resolve("missingclasses.txt"), listBuilder(result::getMissingClasses, Class::getOldName));
+        reports.await();
+    }
+
+    @Override
+    public void structuralMatched(final MatchResult result) {
+        writeFile(outputDir.resolve("structuralclasses.txt"), () -> result.getStructuralClasses().entrySet().stream().map(e -> e.getKey().getOldName() + " " + e.getValue().getOldName()));
+        classesCompared(result);
+    }
+
+    @Override
+    public void membersCompared(final MatchResult result) {
+        writeFile(outputDir.resolve("newfields.txt"), listBuilder(result::getNewFields, ReportFiles::fieldToTSRGString));
+        writeFile(outputDir.resolve("missingfields.txt"), listBuilder(result::getMissingFields, ReportFiles::fieldToTSRGString));
+        writeFile(outputDir.resolve("newmethods.txt"), listBuilder(result::getNewMethods, ReportFiles::methodToTSRGString));
+        writeFile(outputDir.resolve("missingmethods.txt"), listBuilder(result::getMissingMethods, ReportFiles::methodToTSRGString));
+        reports.stream(outputDir.resolve("oldtonew.tsrg"), out -> Matcher.buildTSRG(result.getOldTree(), result.getClasses(), result.getFields(), result.getMethods(), out));
+        dumpMagiDots(result);
+        writeFile(outputDir.resolve("suggestedclasses.txt"), result.getSuggestions()::stream);
+        writeMappings(result);
+        reports.await();
+    }
+
+    // The mapping is built once, and then every format is written from it at the same time.
+    private void writeMappings(final MatchResult result) {
+        if (formats.isEmpty())
+            return;
+        final IMappingFile map;
+        try (Metrics.Phase phase = metrics.start("buildMappings")) {
+            map = result.toMappingFile();
+            phase.items(map.getClasses().size());
+        }
+        final Path dir = outputDir.resolve("mappings");
+        Exceptions.sneak().run(() -> Files.createDirectories(dir));
+        for (IMappingFile.Format format : formats) {
+            final String ext = format.name().toLowerCase(Locale.ROOT);
+            reports.write(dir.resolve("oldtonew." + ext), map, format, false);
+            if (reversed)
+                reports.write(dir.resolve("newtoold." + ext), map, format, true);
+        }
+    }
+
+    private static String fieldToTSRGString(Field f) {
+        return f.getOwner().getOldName() + " " + f.getOldName();
+    }
+
+    private static String methodToTSRGString(Method m) {
+        return m.getOwner().getOldName() + " " + m.getOldName() + " " + m.getOldDesc();
+    }
+
+    private void dumpMagiDots(final MatchResult result) {
+        final Tree oldTree = result.getOldTree();
+        final Tree newTree = result.getNewTree();
+        final Map<Class, Class> forcedClasses = result.getClasses();
+        final Map<Field, Field> forcedFields = result.getFields();
+        final Map<Method, Method> forcedMethods = result.getMethods();
+        Function<Field, String> fts = f -> f.getOwner().getNewName() + "." + f.getNewName();
+        BiFunction<Method, Tree, String> mts = (m, t) -> m.getOwner().getNewName() + "." + m.getNewName() + " " + m.getNewDesc(t);
+
+        writeFile(outputDir.resolve("joined_forced.txt"), () -> {
+            // Runs inside the joined_forced.txt write phase, this one only covers sorting.
+            try (Metrics.Phase phase = metrics.start("dumpMagiDots")) {
+                phase.items(forcedClasses.size() + forcedFields.size() + forcedMethods.size());
+                // Sort on keys built once per entry, from the same first column the lines start with
+                Stream<String> clss = Sorters.sorted(forcedClasses.keySet(), nw -> Sorters.classKey(forcedClasses.get(nw).getNewName())).stream()
+                    .map(nw -> forcedClasses.get(nw).getNewName() + " " + nw.getNewName());
+                Stream<String> flds = Sorters.sorted(forcedFields.keySet(), nw -> Sorters.fieldKey(fts.apply(forcedFields.get(nw)))).stream()
+                    .map(nw -> fts.apply(forcedFields.get(nw)) + " " + fts.apply(nw));
+                Stream<String> mtds = Sorters.sorted(forcedMethods.keySet(), nw -> Sorters.methodKey(mts.apply(forcedMethods.get(nw), oldTree))).stream()
+                    .map(nw -> mts.apply(forcedMethods.get(nw), oldTree) + " " + mts.apply(nw, newTree));
+
+                //Merge them all
+                return Stream.of(Stream.of("[CLASSES]"), clss, Stream.of("[FIELDS]"), flds, Stream.of("[METHODS]"), mtds).flatMap(Function.identity());
+            }
+        });
+    }
+
+    private <T> Supplier<Stream<String>> listBuilder(final Supplier<Collection<T>> t, final Function<T, String> stringFunction) {
+        return () -> t.get().stream().map(stringFunction).sorted();
+    }
+
+    private void writeFile(final Path path, final Supplier<Stream<String>> lines) {
+        reports.write(path, lines);
+    }
+}
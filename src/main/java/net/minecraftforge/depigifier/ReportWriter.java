@@ -0,0 +1,169 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import com.machinezoo.noexception.Exceptions;
+import net.minecraftforge.srgutils.IMappingFile;
+
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+ * Writes report files on a small pool, each one streamed line by line through a buffered writer instead of being collected first.
+ * Reports read the Matcher's state lazily, so await must be called before any of that state is changed again.
+ * With fewer than 2 threads every report is written immediately on the calling thread.
+ * When compressed, the compression's extension is appended to every file name.
+ */
+public class ReportWriter {
+    private final int threads;
+    private final Metrics metrics;
+    private final Compression compression;
+    private final List<Future<?>> pending = new ArrayList<>();
+    private ExecutorService pool;
+
+    public ReportWriter(final int threads) {
+        this(threads, new Metrics());
+    }
+
+    // Every report is recorded as a 'write <file name>' phase, with the number of lines as its items.
+    public ReportWriter(final int threads, final Metrics metrics) {
+        this(threads, metrics, Compression.NONE);
+    }
+
+    public ReportWriter(final int threads, final Metrics metrics, final Compression compression) {
+        this.threads = threads;
+        this.metrics = metrics;
+        this.compression = compression;
+    }
+
+    public void write(final Path path, final Supplier<Stream<String>> lines) {
+        stream(path, out -> lines.get().forEach(out));
+    }
+
+    // For reports that are easier to produce by pushing lines than by building a stream
+    public void stream(final Path path, final Consumer<Consumer<String>> producer) {
+        final Runnable task = () -> Exceptions.sneak().run(() -> {
+            final Path target = compression.resolve(path);
+            try (Metrics.Phase phase = metrics.start("write " + target.getFileName());
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(compression.wrap(Files.newOutputStream(target)), StandardCharsets.UTF_8))) {
+                producer.accept(line -> Exceptions.sneak().run(() -> {
+                    writer.write(line);
+                    writer.newLine();
+                    phase.items(1);
+                }));
+            }
+        });
+
+        submit(task);
+    }
+
+    /*
+     * Mapping files are written by srgutils itself, their number of lines isn't known.
+     * srgutils can only write to a path, so a compressed mapping is written to a temporary file next to it first.
+     */
+    public void write(final Path path, final IMappingFile map, final IMappingFile.Format format, final boolean reversed) {
+        submit(() -> Exceptions.sneak().run(() -> {
+            final Path target = compression.resolve(path);
+            try (Metrics.Phase phase = metrics.start("write " + target.getFileName())) {
+                if (compression == Compression.NONE) {
+                    map.write(path, format, reversed);
+                    return;
+                }
+                final Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+                try {
+                    map.write(tmp, format, reversed);
+                    try (InputStream in = Files.newInputStream(tmp);
+                         OutputStream out = compression.wrap(Files.newOutputStream(target))) {
+                        final byte[] buf = new byte[1 << 16];
+                        for (int len; (len = in.read(buf)) != -1; )
+                            out.write(buf, 0, len);
+                    }
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        }));
+    }
+
+    private void submit(final Runnable task) {
+        if (threads < 2) {
+            task.run();
+            return;
+        }
+        if (pool == null)
+            pool = Executors.newFixedThreadPool(threads);
+        pending.add(pool.submit(task));
+    }
+
+    /*
+     * Waits for every report written so far, even once one of them failed, so no report is left half written.
+     * The first failure is then rethrown, with any later ones added to it as suppressed.
+     */
+    public void await() {
+        if (pool == null)
+            return;
+        Throwable failure = null;
+        try {
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = e.getCause();
+                    else
+                        failure.addSuppressed(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (failure == null)
+                failure = e;
+            else
+                failure.addSuppressed(e);
+        } finally {
+            pending.clear();
+            pool.shutdown();
+            pool = null;
+        }
+
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null) {
+            final Exception cause = (Exception) failure;
+            Exceptions.sneak().run(() -> {
+                throw cause;
+            });
+        }
+    }
+}
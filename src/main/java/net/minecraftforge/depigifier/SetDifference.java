@@ -19,21 +19,22 @@
 
 package net.minecraftforge.depigifier;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class SetDifference<T> {
-    private final HashSet<T> leftOnly;
-    private final HashSet<T> common;
-    private final HashSet<T> rightOnly;
+    private final HashSet<T> leftOnly = new HashSet<>();
+    private final HashSet<T> common = new HashSet<>();
+    private final HashSet<T> rightOnly = new HashSet<>();
 
     public SetDifference(final Set<T> left, final Set<T> right) {
-        leftOnly = new HashSet<>(left);
-        leftOnly.removeAll(right);
-        rightOnly = new HashSet<>(right);
-        rightOnly.removeAll(left);
-        common = new HashSet<>(left);
-        common.removeAll(leftOnly);
+        compare(left, right, leftOnly::add, (l, r) -> common.add(l), rightOnly::add);
     }
 
     public HashSet<T> getLeftOnly() {
@@ -47,4 +48,78 @@ public class SetDifference<T> {
     public HashSet<T> getRightOnly() {
         return rightOnly;
     }
+
+    /*
+     * Classifies every element without copying either set, one pass over each side.
+     */
+    public static <T> void compare(final Set<T> left, final Set<T> right, final Consumer<T> leftOnly, final BiConsumer<T, T> common, final Consumer<T> rightOnly) {
+        for (T l : left) {
+            if (right.contains(l))
+                common.accept(l, l);
+            else
+                leftOnly.accept(l);
+        }
+        for (T r : right) {
+            if (!left.contains(r))
+                rightOnly.accept(r);
+        }
+    }
+
+    /*
+     * Same as above, but left elements are first transformed into the right's key space, each left element is transformed exactly once.
+     * The transformed keys are remembered, so right only elements can be found without a reverse lookup.
+     * Two left elements transforming to the same key throw an IllegalStateException, the elements before them have been passed on by then.
+     */
+    public static <L, R> void compare(final Collection<L> left, final Function<L, R> transformer, final Set<R> right,
+                                      final Consumer<L> leftOnly, final BiConsumer<L, R> common, final Consumer<R> rightOnly) {
+        final Set<R> keys = new HashSet<>();
+        int matched = 0;
+        for (L l : left) {
+            R r = transformer.apply(l);
+            if (!keys.add(r))
+                throw new IllegalStateException("Duplicate key " + r);
+            if (right.contains(r)) {
+                common.accept(l, r);
+                matched++;
+            } else {
+                leftOnly.accept(l);
+            }
+        }
+        if (matched == right.size())
+            return;
+        for (R r : right) {
+            if (!keys.contains(r))
+                rightOnly.accept(r);
+        }
+    }
+
+    /*
+     * Sorted merge for inputs that are already in order, no hashing and no extra memory at all.
+     * Both sides must be sorted by the comparator, the left side by its transformed keys, and neither may contain duplicate keys or nulls.
+     */
+    public static <L, R> void merge(final Iterator<L> left, final Function<L, R> transformer, final Iterator<R> right, final Comparator<? super R> order,
+                                    final Consumer<L> leftOnly, final BiConsumer<L, R> common, final Consumer<R> rightOnly) {
+        L l = left.hasNext() ? left.next() : null;
+        R lkey = l == null ? null : transformer.apply(l);
+        R r = right.hasNext() ? right.next() : null;
+        while (l != null && r != null) {
+            int cmp = order.compare(lkey, r);
+            if (cmp < 0) {
+                leftOnly.accept(l);
+            } else if (cmp > 0) {
+                rightOnly.accept(r);
+                r = right.hasNext() ? right.next() : null;
+                continue;
+            } else {
+                common.accept(l, r);
+                r = right.hasNext() ? right.next() : null;
+            }
+            l = left.hasNext() ? left.next() : null;
+            lkey = l == null ? null : transformer.apply(l);
+        }
+        for (; l != null; l = left.hasNext() ? left.next() : null)
+            leftOnly.accept(l);
+        for (; r != null; r = right.hasNext() ? right.next() : null)
+            rightOnly.accept(r);
+    }
 }
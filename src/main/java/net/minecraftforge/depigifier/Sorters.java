@@ -19,63 +19,143 @@
 
 package net.minecraftforge.depigifier;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
 
 public class Sorters {
 
     private static final String PADDING = "00000000000000000000000000000000000000000000000000";
 
-    public static Comparator<String> CLASSES = (o1, o2) -> {
-        if (o1.equals(o2))
-            return 0;
+    public static Comparator<String> CLASSES = (o1, o2) -> classKey(o1).compareTo(classKey(o2));
+    public static Comparator<String> FIELDS = (o1, o2) -> fieldKey(o1).compareTo(fieldKey(o2));
+    public static Comparator<String> METHODS = (o1, o2) -> methodKey(o1).compareTo(methodKey(o2));
 
-        String[] pts1 = o1.split("\\$");
-        String[] pts2 = o2.split("\\$");
+    /*
+     * The keys split their value once up front, instead of on every comparison, and compare exactly like the matching comparator.
+     * Use them with sorted to sort large collections.
+     */
+    public static ClassKey classKey(String value) {
+        return new ClassKey(value);
+    }
 
-        int s1 = pts1[0].indexOf('/');
-        int s2 = pts2[0].indexOf('/');
-        if (s1 != -1 && s2 != -1)
-            return o1.compareTo(o2);
-        if (s1 != -1)
-            return 1;
-        if (s2 != -1)
-            return -1;
+    public static FieldKey fieldKey(String value) {
+        return new FieldKey(value);
+    }
+
+    public static MethodKey methodKey(String value) {
+        return new MethodKey(value);
+    }
+
+    // Builds every element's key once, then sorts. Stable, so equal keys keep their original order.
+    @SuppressWarnings("unchecked")
+    public static <T, K extends Comparable<K>> List<T> sorted(Collection<T> values, Function<T, K> key) {
+        final Object[][] decorated = new Object[values.size()][];
+        int idx = 0;
+        for (T value : values)
+            decorated[idx++] = new Object[] { key.apply(value), value };
+        Arrays.sort(decorated, (o1, o2) -> ((K)o1[0]).compareTo((K)o2[0]));
+
+        final List<T> ret = new ArrayList<>(decorated.length);
+        for (Object[] entry : decorated)
+            ret.add((T)entry[1]);
+        return ret;
+    }
+
+    // Same as comparing both values left padded with zeros to the width of PADDING, without building the padded strings.
+    private static int comparePadded(String l, String r) {
+        if (l.length() > PADDING.length() || r.length() > PADDING.length())
+            return (PADDING.substring(l.length()) + l).compareTo(PADDING.substring(r.length()) + r);
+
+        int lpad = PADDING.length() - l.length();
+        int rpad = PADDING.length() - r.length();
+        for (int x = 0; x < PADDING.length(); x++) {
+            char lc = x < lpad ? '0' : l.charAt(x - lpad);
+            char rc = x < rpad ? '0' : r.charAt(x - rpad);
+            if (lc != rc)
+                return lc - rc;
+        }
+        return 0;
+    }
 
-        if (pts1[0].length() != pts2[0].length())
-            return pts1[0].length() - pts2[0].length();
+    public static class ClassKey implements Comparable<ClassKey> {
+        private final String value;
+        private final String[] pts;
+        private final boolean packaged;
 
-        int ret = pts1[0].compareTo(pts2[0]);
-        if (ret != 0)
-            return ret;
+        private ClassKey(String value) {
+            this.value = value;
+            this.pts = value.split("\\$");
+            this.packaged = pts[0].indexOf('/') != -1;
+        }
+
+        @Override
+        public int compareTo(ClassKey o) {
+            if (value.equals(o.value))
+                return 0;
 
-        for (int x = 1; x < pts1.length; x++) {
-            if (x >= pts2.length)
+            if (packaged && o.packaged)
+                return value.compareTo(o.value);
+            if (packaged)
                 return 1;
+            if (o.packaged)
+                return -1;
+
+            if (pts[0].length() != o.pts[0].length())
+                return pts[0].length() - o.pts[0].length();
+
+            int ret = pts[0].compareTo(o.pts[0]);
+            if (ret != 0)
+                return ret;
+
+            for (int x = 1; x < pts.length; x++) {
+                if (x >= o.pts.length)
+                    return 1;
+
+                ret = comparePadded(pts[x], o.pts[x]);
+                if (ret != 0)
+                    return ret;
+            }
+            return -1;
+        }
+    }
+
+    public static class FieldKey implements Comparable<FieldKey> {
+        private final ClassKey owner;
+        private final String[] pts;
+
+        private FieldKey(String value) {
+            this.pts = value.split("\\.");
+            this.owner = new ClassKey(pts[0]);
+        }
+
+        @Override
+        public int compareTo(FieldKey o) {
+            int ret = owner.compareTo(o.owner);
+            if (ret != 0)
+                return ret;
+            return pts[1].compareTo(o.pts[1]);
+        }
+    }
+
+    public static class MethodKey implements Comparable<MethodKey> {
+        private final FieldKey member;
+        private final String[] pts;
+
+        private MethodKey(String value) {
+            this.pts = value.split(" ");
+            this.member = new FieldKey(pts[0]);
+        }
 
-            String l = PADDING.substring(pts1[x].length()) + pts1[x];
-            String r = PADDING.substring(pts2[x].length()) + pts2[x];
-            ret = l.compareTo(r);
+        @Override
+        public int compareTo(MethodKey o) {
+            int ret = member.compareTo(o.member);
             if (ret != 0)
                 return ret;
+            return pts[1].compareTo(o.pts[1]);
         }
-        return -1;
-    };
-
-    public static Comparator<String> FIELDS = (o1, o2) -> {
-        String[] pts1 = o1.split("\\.");
-        String[] pts2 = o2.split("\\.");
-        int ret = CLASSES.compare(pts1[0], pts2[0]);
-        if (ret != 0)
-            return ret;
-        return pts1[1].compareTo(pts2[1]);
-    };
-
-    public static Comparator<String> METHODS = (o1, o2) -> {
-        String[] pts1 = o1.split(" ");
-        String[] pts2 = o2.split(" ");
-        int ret = FIELDS.compare(pts1[0], pts2[0]);
-        if (ret != 0)
-            return ret;
-        return pts1[1].compareTo(pts2[1]);
-    };
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Field;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.Tree;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * Pairs up classes that were renamed or moved, using a fingerprint of their members' types.
+ * Types referencing already matched classes are written using the new name, types of unmatched classes are replaced by a wildcard,
+ * so the old and new fingerprints of a renamed class are identical. Only fingerprints that are unique on both sides are trusted.
+ * Every match can make other fingerprints more specific, so this repeats until nothing new is found.
+ */
+public class StructuralMatcher {
+    private static final int MIN_MEMBERS = 2;
+    private static final int MAX_ROUNDS = 16;
+    private static final String UNKNOWN = "?";
+
+    private final Tree oldTree;
+    private final Tree newTree;
+    // Old class name -> New class name
+    private final Map<String, String> matched = new HashMap<>();
+    private final Set<String> matchedNew = new HashSet<>();
+
+    public StructuralMatcher(final Tree oldTree, final Tree newTree, final Map<Class, Class> forcedClasses) {
+        this.oldTree = oldTree;
+        this.newTree = newTree;
+        forcedClasses.forEach((nw, old) -> {
+            matched.put(old.getOldName(), nw.getOldName());
+            matchedNew.add(nw.getOldName());
+        });
+    }
+
+    // Returns Old class -> New class, sorted by old name
+    public Map<Class, Class> match(final Collection<Class> missing, final Collection<Class> added) {
+        final Map<Class, Class> ret = new LinkedHashMap<>();
+        List<Class> olds = missing.stream().sorted(Comparator.comparing(Class::getOldName)).collect(Collectors.toList());
+        List<Class> nws = new ArrayList<>(added);
+
+        for (int round = 0; round < MAX_ROUNDS && !olds.isEmpty() && !nws.isEmpty(); round++) {
+            final Map<String, List<Class>> index = new HashMap<>();
+            nws.forEach(c -> {
+                String print = fingerprint(c, this::resolveNew);
+                if (print != null)
+                    index.computeIfAbsent(print, k -> new ArrayList<>(1)).add(c);
+            });
+            final Map<String, Integer> oldCounts = new HashMap<>();
+            final Map<Class, String> oldPrints = new LinkedHashMap<>();
+            olds.forEach(c -> {
+                String print = fingerprint(c, this::resolveOld);
+                if (print != null) {
+                    oldPrints.put(c, print);
+                    oldCounts.merge(print, 1, Integer::sum);
+                }
+            });
+
+            final Map<Class, Class> found = new LinkedHashMap<>();
+            oldPrints.forEach((old, print) -> {
+                List<Class> candidates = index.get(print);
+                if (candidates != null && candidates.size() == 1 && oldCounts.get(print) == 1)
+                    found.put(old, candidates.get(0));
+            });
+            if (found.isEmpty())
+                break;
+
+            found.forEach((old, nw) -> {
+                matched.put(old.getOldName(), nw.getOldName());
+                matchedNew.add(nw.getOldName());
+            });
+            ret.putAll(found);
+            olds = olds.stream().filter(c -> !found.containsKey(c)).collect(Collectors.toList());
+            final Set<Class> taken = new HashSet<>(found.values());
+            nws = nws.stream().filter(c -> !taken.contains(c)).collect(Collectors.toList());
+        }
+        return ret;
+    }
+
+    private String resolveOld(final String cls) {
+        String ret = matched.get(cls);
+        if (ret != null)
+            return ret;
+        return oldTree.tryClass(cls) == null ? cls : UNKNOWN;
+    }
+
+    private String resolveNew(final String cls) {
+        if (matchedNew.contains(cls))
+            return cls;
+        return newTree.tryClass(cls) == null ? cls : UNKNOWN;
+    }
+
+    // Returns null for classes with too few members to be told apart
+    private static String fingerprint(final Class cls, final Function<String, String> resolver) {
+        if (cls.getFields().size() + cls.getMethods().size() < MIN_MEMBERS)
+            return null;
+
+        final StringBuilder buf = new StringBuilder();
+        final List<String> fields = new ArrayList<>(cls.getFields().size());
+        for (Field fld : cls.getFields())
+            fields.add(fld.getType() == null ? UNKNOWN : normalize(fld.getType(), resolver, buf));
+        final List<String> methods = new ArrayList<>(cls.getMethods().size());
+        for (Method mtd : cls.getMethods())
+            methods.add(normalize(mtd.getOldDesc(), resolver, buf));
+        Collections.sort(fields);
+        Collections.sort(methods);
+
+        buf.setLength(0);
+        buf.append(fields.size()).append('|').append(methods.size());
+        fields.forEach(f -> buf.append('|').append(f));
+        buf.append('|');
+        methods.forEach(m -> buf.append('|').append(m));
+        return buf.toString();
+    }
+
+    private static String normalize(final String desc, final Function<String, String> resolver, final StringBuilder buf) {
+        buf.setLength(0);
+        for (int x = 0; x < desc.length(); x++) {
+            char c = desc.charAt(x);
+            if (c == 'L') {
+                int end = desc.indexOf(';', x);
+                buf.append('L').append(resolver.apply(desc.substring(x + 1, end))).append(';');
+                x = end;
+            } else {
+                buf.append(c);
+            }
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier;
+
+import net.minecraftforge.depigifier.model.SymbolTable;
+import net.minecraftforge.depigifier.model.Tree;
+import net.minecraftforge.depigifier.model.TreeSnapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/*
+ * Directory of TreeSnapshots, keyed by the SHA-256 of the ProGuard file's contents, the filterInits flag and the snapshot version.
+ * A snapshot that can't be read is ignored and replaced, so the cache directory can always be safely deleted.
+ */
+public class TreeCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TreeCache.class);
+
+    private final Path dir;
+
+    public TreeCache(final Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    public Tree fromProguard(final Path file, final boolean filterInits) throws IOException {
+        return fromProguard(file, filterInits, new SymbolTable());
+    }
+
+    public Tree fromProguard(final Path file, final boolean filterInits, final SymbolTable symbols) throws IOException {
+        final Path cached = dir.resolve(key(file, filterInits) + ".tree");
+        if (Files.isRegularFile(cached)) {
+            try {
+                return TreeSnapshot.read(cached, symbols);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Ignoring unreadable tree snapshot {}", cached, e);
+            }
+        }
+
+        final Tree ret = Tree.fromProguard(file, filterInits, symbols);
+        // Write to a temporary file first so an interrupted run never leaves a partial snapshot behind.
+        final Path tmp = Files.createTempFile(dir, "tree", ".tmp");
+        try {
+            TreeSnapshot.write(ret, tmp);
+            Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return ret;
+    }
+
+    private static String key(final Path file, final boolean filterInits) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        final byte[] buf = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int len;
+            while ((len = in.read(buf)) != -1)
+                digest.update(buf, 0, len);
+        }
+        digest.update((byte)(filterInits ? 1 : 0));
+        digest.update((byte)TreeSnapshot.VERSION);
+
+        final StringBuilder ret = new StringBuilder();
+        for (byte b : digest.digest())
+            ret.append(String.format("%02x", b));
+        return ret.toString();
+    }
+}
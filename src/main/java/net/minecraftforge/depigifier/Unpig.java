@@ -21,15 +21,21 @@ package net.minecraftforge.depigifier;
 
 import com.machinezoo.noexception.Exceptions;
 import joptsimple.*;
+import joptsimple.util.EnumConverter;
 import joptsimple.util.PathConverter;
 import joptsimple.util.PathProperties;
+import net.minecraftforge.depigifier.model.SymbolTable;
 import net.minecraftforge.depigifier.model.Tree;
 import net.minecraftforge.srgutils.IMappingFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Unpig {
     public static void main(String... args) throws IOException {
@@ -42,21 +48,69 @@ public class Unpig {
                 withRequiredArg().
                 withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
         */
-        final ArgumentAcceptingOptionSpec<Path> manualMapFile = optionParser.accepts("mapping", "Mapping file containing manual matches").
+        final ArgumentAcceptingOptionSpec<Path> chainFiles = optionParser.accepts("chain", "ProGuard files of several versions, in order, compared one after another instead of --oldPG and --newPG").
+                withRequiredArg().
+                withValuesSeparatedBy(',').
+                withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
+        // Declared ahead of the options that depend on it, as jopt only accepts dependencies on options it already knows
+        final ArgumentAcceptingOptionSpec<Integer> daemonPort = optionParser.accepts("daemon", "Keep running and take requests on this loopback port, 0 picks a free one").
+                availableUnless("chain").
+                withRequiredArg().
+                ofType(Integer.class);
+        final ArgumentAcceptingOptionSpec<Path> manualMapFile = optionParser.accepts("mapping", "Mapping file containing manual matches, can be given several times to apply one after another").
+                availableUnless("chain", "daemon").
                 withRequiredArg().
                 withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
         final ArgumentAcceptingOptionSpec<Path> oldPGFile = optionParser.accepts("oldPG", "Old ProGuard file").
+                requiredUnless("chain", "daemon").
+                availableUnless("chain", "daemon").
                 withRequiredArg().
-                withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE)).
-                required();
+                withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
         final ArgumentAcceptingOptionSpec<Path> newPGFile = optionParser.accepts("newPG", "New ProGuard file").
+                requiredUnless("chain", "daemon").
+                availableUnless("chain", "daemon").
+                withRequiredArg().
+                withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
+        final ArgumentAcceptingOptionSpec<Path> oldJarFile = optionParser.accepts("oldJar", "Old obfuscated jar, used to match renamed methods by their bytecode").
+                availableUnless("chain", "daemon").
                 withRequiredArg().
-                withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE)).
-                required();
+                withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
+        final ArgumentAcceptingOptionSpec<Path> newJarFile = optionParser.accepts("newJar", "New obfuscated jar, used to match renamed methods by their bytecode").
+                availableUnless("chain", "daemon").
+                withRequiredArg().
+                withValuesConvertedBy(new PathConverter(PathProperties.FILE_EXISTING, PathProperties.READABLE));
         final ArgumentAcceptingOptionSpec<Path> outDir = optionParser.accepts("out", "Directory to output to").
                 withRequiredArg().
                 withValuesConvertedBy(new PathConverter()).
                 defaultsTo(Paths.get("output"));
+        final ArgumentAcceptingOptionSpec<Integer> threads = optionParser.accepts("threads", "Number of threads used to compare classes, or versions in chain mode").
+                withRequiredArg().
+                ofType(Integer.class).
+                defaultsTo(1);
+        final ArgumentAcceptingOptionSpec<Path> cacheDir = optionParser.accepts("cache", "Directory to keep parsed ProGuard files in, so unchanged files are not parsed again").
+                withRequiredArg().
+                withValuesConvertedBy(new PathConverter());
+        final ArgumentAcceptingOptionSpec<Integer> keepTrees = optionParser.accepts("keep", "Number of parsed files the daemon keeps in memory").
+                availableIf("daemon").
+                withRequiredArg().
+                ofType(Integer.class).
+                defaultsTo(4);
+        final ArgumentAcceptingOptionSpec<IMappingFile.Format> mappingFormats = optionParser.accepts("format", "Additional mapping formats to write to the mappings directory, " + Arrays.toString(IMappingFile.Format.values())).
+                availableUnless("chain").
+                withRequiredArg().
+                withValuesSeparatedBy(',').
+                withValuesConvertedBy(new FormatConverter());
+        final AbstractOptionSpec<Void> reverseMappings = optionParser.accepts("reverse", "Also write every --format from new to old").
+                availableIf("format");
+        final ArgumentAcceptingOptionSpec<Compression> compressOutput = optionParser.accepts("compress", "Compress the output files, " + Arrays.toString(Compression.values())).
+                availableUnless("daemon").
+                withRequiredArg().
+                withValuesConvertedBy(new CompressionConverter());
+        final AbstractOptionSpec<Void> metricsFile = optionParser.accepts("metrics", "Write the time, allocation and item count of every phase to metrics.json in the output directory");
+        final AbstractOptionSpec<Void> structural = optionParser.accepts("structural", "Match renamed classes by the shape of their members");
+        final AbstractOptionSpec<Void> overrides = optionParser.accepts("overrides", "Match renamed methods across override families, using the class hierarchy of --oldJar and --newJar").
+                availableIf("oldJar", "newJar");
+        final AbstractOptionSpec<Void> lineMatching = optionParser.accepts("lines", "Match renamed methods by their line ranges in the ProGuard files");
 
         final AbstractOptionSpec<Void> forHelp = optionParser.accepts("help", "Help").forHelp();
 
@@ -72,16 +126,60 @@ public class Unpig {
             Exceptions.sneak().run(()->optionParser.printHelpOn(System.out));
             System.exit(1);
         }
+        // The jars can't require each other through jopt, which only lets an option depend on ones declared before it
+        if (argset.has(oldJarFile) != argset.has(newJarFile)) {
+            System.out.println("--oldJar and --newJar have to be given together");
+            Exceptions.sneak().run(()->optionParser.printHelpOn(System.out));
+            System.exit(1);
+        }
 
 
         final Path oldPG = argset.valueOf(oldPGFile);
         final Path newPG = argset.valueOf(newPGFile);
         //final Path srgFile = argset.valueOf(inSrgFile);
         final Path output = argset.valueOf(outDir);
-        final Path manualMap = argset.valueOf(manualMapFile);
+        final TreeCache cache = argset.has(cacheDir) ? new TreeCache(argset.valueOf(cacheDir)) : null;
+        final Metrics metrics = new Metrics();
+
+        if (argset.has(daemonPort)) {
+            final Daemon daemon = new Daemon(argset.valueOf(daemonPort), argset.valueOf(keepTrees));
+            daemon.setParallelism(argset.valueOf(threads));
+            daemon.setCache(cache);
+            daemon.run();
+            return;
+        }
+
+        if (argset.has(chainFiles)) {
+            if (argset.valuesOf(chainFiles).size() < 2) {
+                System.out.println("--chain needs at least two ProGuard files");
+                Exceptions.sneak().run(()->optionParser.printHelpOn(System.out));
+                System.exit(1);
+            }
+            final Chain chain = new Chain(argset.valuesOf(chainFiles), output);
+            chain.setParallelism(argset.valueOf(threads));
+            chain.setStructural(argset.has(structural));
+            chain.setLineMatching(argset.has(lineMatching));
+            chain.setCache(cache);
+            if (argset.has(compressOutput))
+                chain.setCompression(argset.valueOf(compressOutput));
+            chain.setMetrics(metrics);
+            chain.run();
+            if (argset.has(metricsFile))
+                metrics.write(output.resolve("metrics.json"));
+            return;
+        }
 
-        final Tree oldTree = Tree.from(IMappingFile.load(oldPG.toFile()), true);
-        final Tree newTree = Tree.from(IMappingFile.load(newPG.toFile()), true);
+        final SymbolTable symbols = new SymbolTable();
+        final Tree oldTree = load(oldPG, cache, symbols, metrics);
+        final Tree newTree = load(newPG, cache, symbols, metrics);
+        if (argset.has(oldJarFile)) {
+            try (Metrics.Phase phase = metrics.start("scan " + argset.valueOf(oldJarFile).getFileName())) {
+                JarScanner.scan(argset.valueOf(oldJarFile), oldTree, argset.valueOf(threads));
+            }
+            try (Metrics.Phase phase = metrics.start("scan " + argset.valueOf(newJarFile).getFileName())) {
+                JarScanner.scan(argset.valueOf(newJarFile), newTree, argset.valueOf(threads));
+            }
+        }
         /*
         if (argset.has(inSrgFile)) {
             final TSRGFile tsrgFile = new TSRGFile(srgFile, oldProguard);
@@ -99,12 +197,73 @@ public class Unpig {
         }
 
         Matcher comp = new Matcher(oldTree, newTree, output);
+        comp.setParallelism(argset.valueOf(threads));
+        comp.setMetrics(metrics);
+        comp.setOverrides(argset.has(overrides));
+        comp.setLineMatching(argset.has(lineMatching));
+        comp.setMappingFormats(argset.valuesOf(mappingFormats), argset.has(reverseMappings));
+        if (argset.has(compressOutput))
+            comp.setCompression(argset.valueOf(compressOutput));
 
         if (argset.has(manualMapFile)) {
-            final Tree manualMappings = Tree.from(IMappingFile.load(manualMap.toFile()), false);
-            comp.addMapper(manualMappings);
+            final List<Tree> manualMappings = new ArrayList<>();
+            for (Path manualMap : argset.valuesOf(manualMapFile)) {
+                try (Metrics.Phase phase = metrics.start("load " + manualMap.getFileName())) {
+                    manualMappings.add(loadMapping(manualMap));
+                    phase.items(manualMappings.get(manualMappings.size() - 1).getClasses().size());
+                }
+            }
+            comp.addMapper(compose(manualMappings, metrics));
         }
         comp.computeClassListDifferences();
+        if (argset.has(structural))
+            comp.matchStructurally();
         comp.compareExistingClasses();
+
+        if (argset.has(metricsFile))
+            metrics.write(output.resolve("metrics.json"));
+    }
+
+    // Several mapping files are folded into one tree up front, so lookups don't have to go through each of them.
+    static Tree compose(final List<Tree> trees, final Metrics metrics) {
+        if (trees.size() == 1)
+            return trees.get(0);
+        try (Metrics.Phase phase = metrics.start("compose mappings")) {
+            final Tree ret = Tree.compose(trees);
+            phase.items(ret.getClasses().size());
+            return ret;
+        }
+    }
+
+    static class FormatConverter extends EnumConverter<IMappingFile.Format> {
+        FormatConverter() {
+            super(IMappingFile.Format.class);
+        }
+    }
+
+    static class CompressionConverter extends EnumConverter<Compression> {
+        CompressionConverter() {
+            super(Compression.class);
+        }
+    }
+
+    // Mapping files may be compressed too, srgutils reads them from the decompressed stream.
+    static Tree loadMapping(final Path file) throws IOException {
+        try (InputStream in = Compression.open(file)) {
+            return Tree.from(IMappingFile.load(in), false);
+        }
+    }
+
+    public static Tree load(final Path file, final TreeCache cache, final Metrics metrics) throws IOException {
+        return load(file, cache, new SymbolTable(), metrics);
+    }
+
+    // Trees that are compared with each other should share their symbols, so names they have in common are only kept once.
+    public static Tree load(final Path file, final TreeCache cache, final SymbolTable symbols, final Metrics metrics) throws IOException {
+        try (Metrics.Phase phase = metrics.start("load " + file.getFileName())) {
+            final Tree ret = cache == null ? Tree.fromProguard(file, true, symbols) : cache.fromProguard(file, true, symbols);
+            phase.items(ret.getClasses().size());
+            return ret;
+        }
     }
 }
@@ -29,10 +29,13 @@ public class Class {
     private final Map<String, Method> o2nMethods = new HashMap<>();
     private final Map<String, Method> n2oMethods = new HashMap<>();
     private final Map<String, Set<Method>> references = new HashMap<>();
+    // False after a bulk load, until the New-to-Old maps are first needed
+    private volatile boolean indexed = true;
 
     private final Tree tree;
     private final String oldName;
     private String newName;
+    private List<Class> parents = Collections.emptyList();
 
     Class(final Tree tree, final String name) {
         this.tree = tree;
@@ -46,6 +49,7 @@ public class Class {
     }
 
     public Class rename(String newName) {
+        newName = tree.getSymbols().intern(newName);
         this.tree.renameClass(this, newName);
         this.newName = newName;
         return this;
@@ -59,14 +63,39 @@ public class Class {
         return newName;
     }
 
+    // Super class and interfaces that are part of the same tree, only known when read from a jar
+    public Class setParents(List<Class> parents) {
+        this.parents = parents;
+        return this;
+    }
+
+    public List<Class> getParents() {
+        return parents;
+    }
+
     public Field getField(String name) {
-        return o2nFields.computeIfAbsent(name, k -> new Field(this, name));
+        Field ret = o2nFields.get(name);
+        if (ret == null) {
+            ret = new Field(this, tree.getSymbols().intern(name));
+            o2nFields.put(ret.getOldName(), ret);
+        }
+        return ret;
     }
 
     public Field tryField(String name) {
         return o2nFields.get(name);
     }
 
+    public Field tryNewField(String newName) {
+        index();
+        Field ret = n2oFields.get(newName);
+        if (ret == null) {
+            ret = o2nFields.get(newName);
+            return ret != null && ret.getNewName().equals(newName) ? ret : null;
+        }
+        return ret;
+    }
+
     //Warning: Data is not copied, Do not modify.
     public Collection<Field> getFields() {
         return o2nFields.values();
@@ -78,11 +107,33 @@ public class Class {
     }
 
     public Method getMethod(String name, String desc) {
-        return o2nMethods.computeIfAbsent(name + desc, k -> new Method(this, name, desc));
+        SymbolTable symbols = tree.getSymbols();
+        return o2nMethods.computeIfAbsent(symbols.signature(name, desc), k -> new Method(this, symbols.intern(name), symbols.intern(desc)));
     }
 
     public Method tryMethod(String name, String desc) {
-        return o2nMethods.get(name + desc);
+        String sig = tree.getSymbols().findSignature(name, desc);
+        return sig == null ? null : o2nMethods.get(sig);
+    }
+
+    // Signature is the method name immediately followed by its descriptor, as returned by getMethodSignatures
+    public Method tryMethod(String signature) {
+        return o2nMethods.get(signature);
+    }
+
+    // Descriptor is in terms of the new class names
+    public Method tryNewMethod(String newName, String newDesc) {
+        // Indexing adds the new signatures to the symbol table, so it has to happen before looking one up.
+        index();
+        String sig = tree.getSymbols().findSignature(newName, newDesc);
+        if (sig == null)
+            return null;
+        Method ret = n2oMethods.get(sig);
+        if (ret == null) {
+            ret = o2nMethods.get(sig);
+            return ret != null && ret.getNewName().equals(newName) && ret.getNewDesc(tree).equals(newDesc) ? ret : null;
+        }
+        return ret;
     }
 
     //Warning: Data is not copied, Do not modify.
@@ -101,7 +152,7 @@ public class Class {
     }
 
     public String mapMethod(String method, String desc) {
-        Method mtd = o2nMethods.get(method + desc);
+        Method mtd = tryMethod(method, desc);
         return mtd == null ? method : mtd.getNewName();
     }
 
@@ -109,26 +160,77 @@ public class Class {
 
     void renameField(Field field, String newName) {
         //TODO: Add check to not overwrite existing?
-        n2oFields.remove(field.getNewName());
+        if (tree.isBulkLoading())
+            return;
+        index();
+        n2oFields.remove(field.getNewName(), field);
         n2oFields.put(newName, field);
     }
 
     void renameMethod(Method method, String newName) {
         //TODO: Add check to not overwrite existing?
+        if (tree.isBulkLoading())
+            return;
+        index();
+        SymbolTable symbols = tree.getSymbols();
         String desc = method.getNewDesc(tree);
-        n2oMethods.remove(method.getNewName() + desc);
-        n2oMethods.put(newName + desc, method);
+        n2oMethods.remove(symbols.signature(method.getNewName(), desc), method);
+        n2oMethods.put(symbols.signature(newName, desc), method);
+    }
+
+    // Called at the end of a bulk load, see Tree.endBulkLoad
+    void invalidateIndex() {
+        indexed = false;
+    }
+
+    /*
+     * Builds the New-to-Old maps from the current names. Classes can be looked up from several threads at once, for example by the JarScanner,
+     * so the first one builds them while holding the lock and the volatile flag publishes the result.
+     */
+    private void index() {
+        if (indexed)
+            return;
+        synchronized (this) {
+            if (indexed)
+                return;
+            SymbolTable symbols = tree.getSymbols();
+            n2oFields.clear();
+            for (Field fld : o2nFields.values())
+                n2oFields.put(fld.getNewName(), fld);
+            n2oMethods.clear();
+            for (Method mtd : o2nMethods.values())
+                n2oMethods.put(symbols.signature(mtd.getNewName(), mtd.getNewDesc(tree)), mtd);
+            indexed = true;
+        }
+    }
+
+    void linkReferences() {
+        references.clear();
+        for (Method mtd : o2nMethods.values())
+            mtd.linkReferences();
+    }
+
+    Tree getTree() {
+        return tree;
     }
 
     void addReference(String cls, Method method) {
-        references.computeIfAbsent(cls, k -> new HashSet<>()).add(method);
-        tree.addReference(cls, this);
+        // Nested classes missing from the tree are mapped through their outer class, so listen for that being renamed as well.
+        for (int idx = cls.length(); idx > 0; idx = cls.lastIndexOf('$', idx - 1)) {
+            String name = cls.substring(0, idx);
+            references.computeIfAbsent(name, k -> new HashSet<>()).add(method);
+            tree.addReference(name, this);
+        }
     }
 
     void classRenamed(Class cls, IMapper mapper) {
+        index();
+        SymbolTable symbols = tree.getSymbols();
         references.getOrDefault(cls.getOldName(), Collections.emptySet()).forEach(m -> {
-            n2oMethods.remove(m.getNewName() + m.getNewDesc(tree));
-            n2oMethods.put(m.getNewName() + m.getNewDesc(mapper), m);
+            String desc = symbols.intern(m.getNewDesc(mapper));
+            n2oMethods.remove(symbols.signature(m.getNewName(), m.getNewDesc(tree)), m);
+            n2oMethods.put(symbols.signature(m.getNewName(), desc), m);
+            tree.setNewDesc(m, desc);
         });
     }
 }
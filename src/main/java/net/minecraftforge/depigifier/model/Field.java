@@ -32,11 +32,12 @@ public class Field {
     }
 
     public Field setType(String desc) {
-        this.desc = desc;
+        this.desc = owner.getTree().getSymbols().intern(desc);
         return this;
     }
 
     public Field rename(String newName) {
+        newName = owner.getTree().getSymbols().intern(newName);
         this.owner.renameField(this, newName);
         this.newName = newName;
         return this;
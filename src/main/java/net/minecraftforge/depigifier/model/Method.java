@@ -19,7 +19,9 @@
 
 package net.minecraftforge.depigifier.model;
 
-import org.objectweb.asm.Type;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import net.minecraftforge.depigifier.IMapper;
 
@@ -27,26 +29,30 @@ public class Method {
     private final Class owner;
     private final String oldName;
     private final String desc;
-    private final Type[] args;
-    private final Type retType;
 
     private String newName;
     private int start = -1;
     private int end = -1;
+    private long body;
+    private int access;
+    private Set<Method> calls = Collections.emptySet();
 
     public Method(final Class owner, final String name, final String desc) {
         this.owner = owner;
         this.oldName = name;
         this.newName = name;
         this.desc = desc;
-        this.args = Type.getArgumentTypes(desc);
-        this.retType = Type.getReturnType(desc);
-
-        for (Type arg : args) {
-            if (arg.getSort() == Type.ARRAY)
-                arg = arg.getElementType();
-            if (arg.getSort() == Type.OBJECT)
-                getOwner().addReference(arg.getInternalName(), this);
+
+        // The descriptor is only scanned for class references once something needs them, see Tree.linkReferences
+        if (owner.getTree().hasLinkedReferences())
+            linkReferences();
+    }
+
+    void linkReferences() {
+        for (int idx = desc.indexOf('L'); idx != -1; idx = desc.indexOf('L', idx)) {
+            int semi = desc.indexOf(';', idx);
+            getOwner().addReference(desc.substring(idx + 1, semi), this);
+            idx = semi + 1;
         }
     }
 
@@ -56,7 +62,28 @@ public class Method {
         return this;
     }
 
+    // Normalized hash of the method's bytecode, zero means unknown
+    public Method setBody(long hash) {
+        this.body = hash;
+        return this;
+    }
+
+    // Access flags from the jar, as in ASM's Opcodes, zero when the method wasn't scanned
+    public Method setAccess(int access) {
+        this.access = access;
+        return this;
+    }
+
+    // Records a call from this method to another method in the same tree
+    public Method addCall(Method target) {
+        if (calls.isEmpty())
+            calls = new HashSet<>();
+        calls.add(target);
+        return this;
+    }
+
     public Method rename(String newName) {
+        newName = owner.getTree().getSymbols().intern(newName);
         getOwner().renameMethod(this, newName);
         this.newName = newName;
         return this;
@@ -72,7 +99,13 @@ public class Method {
     }
 
     public String getNewDesc(IMapper mapper) {
-        return mapper.mapDescriptor(args, retType);
+        if (mapper == owner.getTree())
+            return owner.getTree().getNewDesc(this);
+        return mapDescriptor(mapper);
+    }
+
+    String mapDescriptor(IMapper mapper) {
+        return mapper.mapDescriptor(desc);
     }
 
     public Class getOwner() {
@@ -87,6 +120,23 @@ public class Method {
         return newName;
     }
 
+    public boolean hasBody() {
+        return body != 0;
+    }
+
+    public long getBodyHash() {
+        return body;
+    }
+
+    public int getAccess() {
+        return access;
+    }
+
+    //Warning: Data is not copied, Do not modify.
+    public Set<Method> getCalls() {
+        return calls;
+    }
+
     public boolean hasLines() {
         return start != -1 && end != -1;
     }
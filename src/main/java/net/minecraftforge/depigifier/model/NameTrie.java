@@ -0,0 +1,193 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.model;
+
+/*
+ * The old names of a tree's classes and packages, split into segments on '/' and '$'. Walking a name once finds both its innermost known
+ * outer class and its longest mapped package, without creating any strings on the way. Children are found by hashing the segment in place.
+ */
+class NameTrie {
+    private final Node root = new Node();
+
+    void addClass(final Class cls) {
+        node(cls.getOldName()).cls = cls;
+    }
+
+    // An empty package is the default package
+    void addPackage(final String pkg, final String mapped) {
+        (pkg.isEmpty() ? root : node(pkg)).pkg = mapped;
+    }
+
+    private Node node(final String name) {
+        Node ret = root;
+        int start = 0;
+        while (true) {
+            int end = next(name, start);
+            ret = ret.add(name, start, end);
+            if (end == name.length())
+                return ret;
+            start = end + 1;
+        }
+    }
+
+    /*
+     * Maps a name that isn't one of the tree's classes. Nested classes of a known class keep the new name of that class, anything else is moved
+     * to its longest mapped package. The default package mapping only applies to classes without a package.
+     * While a class is being renamed, renamedTo is used as its new name.
+     */
+    String map(final String name, final Class renamed, final String renamedTo) {
+        Class outer = null;
+        int outerEnd = -1;
+        String pkg = name.indexOf('/') == -1 ? root.pkg : null;
+        int pkgEnd = -1;
+
+        Node node = root;
+        int start = 0;
+        while (true) {
+            int end = next(name, start);
+            node = node.find(name, start, end);
+            if (node == null || end == name.length())
+                break;
+            if (name.charAt(end) == '$') {
+                if (node.cls != null) {
+                    outer = node.cls;
+                    outerEnd = end;
+                }
+            } else if (node.pkg != null) {
+                pkg = node.pkg;
+                pkgEnd = end;
+            }
+            start = end + 1;
+        }
+
+        if (outer != null) {
+            final String prefix = outer == renamed ? renamedTo : outer.getNewName();
+            return new StringBuilder(prefix.length() + name.length() - outerEnd).append(prefix).append(name, outerEnd, name.length()).toString();
+        }
+        if (pkg == null)
+            return name;
+        if (pkg.isEmpty()) // Moved to the default package, drop the separator too
+            return pkgEnd == -1 ? name : name.substring(pkgEnd + 1);
+        if (pkgEnd == -1)
+            return new StringBuilder(pkg.length() + 1 + name.length()).append(pkg).append('/').append(name).toString();
+        return new StringBuilder(pkg.length() + name.length() - pkgEnd).append(pkg).append(name, pkgEnd, name.length()).toString();
+    }
+
+    // Maps a package name by the longest mapped package it is in, or is
+    String mapPackage(final String pkg) {
+        if (pkg.isEmpty())
+            return root.pkg == null ? pkg : root.pkg;
+
+        String mapped = null;
+        int mappedEnd = -1;
+        Node node = root;
+        int start = 0;
+        while (true) {
+            int end = next(pkg, start);
+            node = node.find(pkg, start, end);
+            if (node == null)
+                break;
+            if (node.pkg != null) {
+                mapped = node.pkg;
+                mappedEnd = end;
+            }
+            if (end == pkg.length())
+                break;
+            start = end + 1;
+        }
+
+        if (mapped == null)
+            return pkg;
+        if (mappedEnd == pkg.length())
+            return mapped;
+        return mapped.isEmpty() ? pkg.substring(mappedEnd + 1) : mapped + pkg.substring(mappedEnd);
+    }
+
+    private static int next(final String name, final int from) {
+        for (int x = from; x < name.length(); x++) {
+            char c = name.charAt(x);
+            if (c == '/' || c == '$')
+                return x;
+        }
+        return name.length();
+    }
+
+    private static int hash(final String value, final int start, final int end) {
+        int ret = 0;
+        for (int x = start; x < end; x++)
+            ret = 31 * ret + value.charAt(x);
+        return ret ^ (ret >>> 16);
+    }
+
+    // Children are kept in an open addressed table, at most half full
+    private static class Node {
+        private String[] keys;
+        private Node[] children;
+        private int size;
+        private Class cls;
+        private String pkg;
+
+        private Node find(final String name, final int start, final int end) {
+            if (keys == null)
+                return null;
+            final int mask = keys.length - 1;
+            final int len = end - start;
+            for (int x = hash(name, start, end) & mask; keys[x] != null; x = (x + 1) & mask) {
+                if (keys[x].length() == len && keys[x].regionMatches(0, name, start, len))
+                    return children[x];
+            }
+            return null;
+        }
+
+        private Node add(final String name, final int start, final int end) {
+            Node ret = find(name, start, end);
+            if (ret != null)
+                return ret;
+            if (keys == null || (size + 1) * 2 > keys.length)
+                resize(keys == null ? 4 : keys.length * 2);
+            ret = new Node();
+            put(name.substring(start, end), ret);
+            size++;
+            return ret;
+        }
+
+        private void put(final String key, final Node child) {
+            final int mask = keys.length - 1;
+            int x = hash(key, 0, key.length()) & mask;
+            while (keys[x] != null)
+                x = (x + 1) & mask;
+            keys[x] = key;
+            children[x] = child;
+        }
+
+        private void resize(final int capacity) {
+            final String[] oldKeys = keys;
+            final Node[] oldChildren = children;
+            keys = new String[capacity];
+            children = new Node[capacity];
+            if (oldKeys != null) {
+                for (int x = 0; x < oldKeys.length; x++) {
+                    if (oldKeys[x] != null)
+                        put(oldKeys[x], oldChildren[x]);
+                }
+            }
+        }
+    }
+}
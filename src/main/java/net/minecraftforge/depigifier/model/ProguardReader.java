@@ -0,0 +1,115 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import net.minecraftforge.depigifier.ClassLookup;
+
+/*
+ * Reads ProGuard mapping files straight into a Tree, one line at a time, without building an IMappingFile first.
+ *
+ *   com.example.Foo -> a:
+ *       int count -> a
+ *       12:20:void tick(java.lang.String,int[]) -> b
+ *       30:30:void helper():45:45 -> c
+ */
+public class ProguardReader {
+    private static final String[] NO_ARGS = new String[0];
+
+    public static Tree read(final InputStream input, final boolean filterInits) throws IOException {
+        return read(input, filterInits, new SymbolTable());
+    }
+
+    public static Tree read(final InputStream input, final boolean filterInits, final SymbolTable symbols) throws IOException {
+        final Tree ret = new Tree(symbols);
+        ret.beginBulkLoad();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Class cls = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.charAt(0) == '#')
+                continue;
+
+            final int arrow = trimmed.indexOf(" -> ");
+            if (arrow == -1)
+                throw new IOException("Invalid ProGuard line: " + line);
+
+            if (!Character.isWhitespace(line.charAt(0))) {
+                final String mapped = trimmed.substring(arrow + 4, trimmed.endsWith(":") ? trimmed.length() - 1 : trimmed.length());
+                cls = ret.getClass(trimmed.substring(0, arrow).replace('.', '/')).rename(mapped.replace('.', '/'));
+            } else if (cls == null) {
+                throw new IOException("Member defined outside of a class: " + line);
+            } else if (trimmed.lastIndexOf('(', arrow) == -1) {
+                readField(cls, trimmed, arrow);
+            } else {
+                readMethod(cls, trimmed, arrow, filterInits);
+            }
+        }
+        ret.endBulkLoad();
+        return ret;
+    }
+
+    private static void readField(final Class cls, final String line, final int arrow) {
+        final int space = line.indexOf(' ');
+        cls.getField(line.substring(space + 1, arrow))
+           .setType(ClassLookup.transformSignature(line.substring(0, space)))
+           .rename(line.substring(arrow + 4));
+    }
+
+    private static void readMethod(final Class cls, final String line, final int arrow, final boolean filterInits) {
+        int start = -1;
+        int end = -1;
+        int pos = 0;
+        if (Character.isDigit(line.charAt(0))) {
+            final int first = line.indexOf(':');
+            final int second = line.indexOf(':', first + 1);
+            start = Integer.parseInt(line.substring(0, first));
+            end = Integer.parseInt(line.substring(first + 1, second));
+            pos = second + 1;
+        }
+
+        final int space = line.indexOf(' ', pos);
+        final int open = line.indexOf('(', space);
+        final int close = line.indexOf(')', open);
+        final String name = line.substring(space + 1, open);
+        // Methods inlined from other classes are qualified with their owner, they do not belong to this class.
+        if (name.indexOf('.') != -1 || (filterInits && name.startsWith("<")))
+            return;
+
+        final String args = line.substring(open + 1, close);
+        final String desc = ClassLookup.transformMethodNoObf(args.isEmpty() ? NO_ARGS : args.split(","), line.substring(pos, space));
+        // Anything between the ')' and the arrow is the original line range of an inlined frame.
+        final boolean inlined = close + 1 != arrow;
+
+        final boolean existing = cls.tryMethod(name, desc) != null;
+        final Method mtd = cls.getMethod(name, desc);
+        if (!inlined || !existing)
+            mtd.rename(line.substring(arrow + 4));
+
+        if (start != -1 && !inlined)
+            mtd.setLines(mtd.hasLines() ? Math.min(start, mtd.getStart()) : start, mtd.hasLines() ? Math.max(end, mtd.getEnd()) : end);
+    }
+}
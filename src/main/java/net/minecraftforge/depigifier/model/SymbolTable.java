@@ -0,0 +1,121 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Canonical instances of class names, member names, descriptors and method signatures (name immediately followed by descriptor).
+ * Trees that are compared with each other can be given the same table, so the old and new trees do not each hold a copy of every name they have in common.
+ * Nothing is ever removed from a table, it is released together with the last tree using it.
+ *
+ * Signatures are stored in an open addressed table so they can be found from their name and descriptor without concatenating them.
+ * Any number of threads can add and look up names and signatures at once, as trees sharing a table are loaded and indexed in parallel.
+ * Lookups do not lock. Additions are serialized and each one publishes the table again, so a lookup finds every signature added before it
+ * started, while one being added at the same time may not be found yet. signature always returns the canonical instance.
+ */
+public class SymbolTable {
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private volatile String[] signatures = new String[1 << 12];
+    private int signatureCount;
+
+    public String intern(String value) {
+        if (value == null)
+            return null;
+        // Most names are already known, a plain get avoids locking the bin like putIfAbsent does.
+        String ret = names.get(value);
+        if (ret != null)
+            return ret;
+        ret = names.putIfAbsent(value, value);
+        return ret == null ? value : ret;
+    }
+
+    public String signature(String name, String desc) {
+        String ret = findSignature(name, desc);
+        if (ret != null)
+            return ret;
+
+        synchronized (this) {
+            String[] table = signatures;
+            int hash = hash(name, desc);
+            int idx = find(table, hash, name, desc);
+            if (table[idx] != null)
+                return table[idx];
+
+            // Slots are only ever filled, and a resize fills a new table, so a lookup running meanwhile never loses an entry it could see before.
+            ret = intern(name + desc);
+            if ((signatureCount + 1) * 4 > table.length * 3) {
+                table = resize(table);
+                idx = find(table, hash, name, desc);
+            }
+            table[idx] = ret;
+            signatureCount++;
+            signatures = table;
+            return ret;
+        }
+    }
+
+    // Returns null if the signature has never been added
+    public String findSignature(String name, String desc) {
+        String[] table = signatures;
+        return table[find(table, hash(name, desc), name, desc)];
+    }
+
+    private static int find(String[] table, int hash, String name, String desc) {
+        int mask = table.length - 1;
+        int idx = slot(hash, mask);
+        for (String entry = table[idx]; entry != null; entry = table[idx]) {
+            if (entry.hashCode() == hash && entry.length() == name.length() + desc.length() && entry.startsWith(name) && entry.startsWith(desc, name.length()))
+                return idx;
+            idx = (idx + 1) & mask;
+        }
+        return idx;
+    }
+
+    private static String[] resize(String[] table) {
+        String[] ret = new String[table.length << 1];
+        int mask = ret.length - 1;
+        for (String entry : table) {
+            if (entry == null)
+                continue;
+            int hash = entry.hashCode();
+            int idx = slot(hash, mask);
+            while (ret[idx] != null)
+                idx = (idx + 1) & mask;
+            ret[idx] = entry;
+        }
+        return ret;
+    }
+
+    // Similar signatures have neighbouring hash codes, scramble them so they don't end up in one long probe sequence.
+    private static int slot(int hash, int mask) {
+        hash *= 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    // Same as (name + desc).hashCode()
+    private static int hash(String name, String desc) {
+        int hash = name.hashCode();
+        for (int x = 0; x < desc.length(); x++)
+            hash = 31 * hash + desc.charAt(x);
+        return hash;
+    }
+}
@@ -19,12 +19,18 @@
 
 package net.minecraftforge.depigifier.model;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import net.minecraftforge.depigifier.Compression;
 import net.minecraftforge.depigifier.IMapper;
 import net.minecraftforge.srgutils.IMappingFile;
 
@@ -33,35 +39,263 @@ import java.util.Map;
 public class Tree implements IMapper {
     public static Tree from(IMappingFile map, final boolean filterInits) {
         Tree ret = new Tree();
+        ret.beginBulkLoad();
         map.getPackages().forEach(pkg -> ret.addPackage(pkg.getOriginal(), pkg.getMapped()));
         map.getClasses().forEach(cls -> {
             Class tcls = ret.getClass(cls.getOriginal());
             tcls.rename(cls.getMapped());
             cls.getFields().forEach(fld -> tcls.getField(fld.getOriginal()).rename(fld.getMapped()));
             cls.getMethods().stream().filter(mtd -> !filterInits || !mtd.getOriginal().startsWith("<"))
-                .forEach(mtd -> tcls.getMethod(mtd.getOriginal(), mtd.getDescriptor()).rename(mtd.getMapped()));
+                .forEach(mtd -> {
+                    final Method tmtd = tcls.getMethod(mtd.getOriginal(), mtd.getDescriptor()).rename(mtd.getMapped());
+                    // srgutils keeps the line range of ProGuard methods as metadata
+                    final String start = mtd.getMetadata().get("start_line");
+                    final String end = mtd.getMetadata().get("end_line");
+                    if (start != null && end != null)
+                        tmtd.setLines(Integer.parseInt(start), Integer.parseInt(end));
+                });
         });
+        ret.endBulkLoad();
         return ret;
     }
 
+    /*
+     * Folds a chain of mappings into a single tree, from the old names of the first tree to the new names of the last one,
+     * so looking a name up costs one probe instead of one per tree. The trees themselves are left unchanged.
+     * Entries that only a later tree has are included when they can be traced back through the trees before it.
+     */
+    public static Tree compose(final List<Tree> trees) {
+        if (trees.isEmpty())
+            throw new IllegalArgumentException("Nothing to compose");
+        Tree ret = trees.get(0);
+        for (int x = 1; x < trees.size(); x++)
+            ret = compose(ret, trees.get(x));
+        return ret;
+    }
+
+    private static Tree compose(final Tree first, final Tree second) {
+        final Tree ret = new Tree(first.symbols);
+        ret.beginBulkLoad();
+        first.packages.forEach((pkg, mapped) -> ret.addPackage(pkg, second.mapPackage(mapped)));
+        second.packages.forEach((pkg, mapped) -> {
+            if (!ret.packages.containsKey(pkg) && first.mapPackage(pkg).equals(pkg))
+                ret.addPackage(pkg, mapped);
+        });
+
+        for (Class cls : first.getClasses()) {
+            final String mid = cls.getNewName();
+            final Class out = ret.getClass(cls.getOldName()).rename(second.mapClass(mid));
+            for (Field fld : cls.getFields()) {
+                final Field _fld = out.getField(fld.getOldName()).rename(second.mapField(mid, fld.getNewName()));
+                if (fld.getType() != null)
+                    _fld.setType(fld.getType());
+            }
+            for (Method mtd : cls.getMethods())
+                out.getMethod(mtd.getOldName(), mtd.getOldDesc()).rename(second.mapMethod(mid, mtd.getNewName(), mtd.getNewDesc(first)));
+
+            // Members the first tree doesn't know keep their names through it
+            final Class next = second.tryClass(mid);
+            if (next != null)
+                composeMembers(first, next, cls, out);
+        }
+
+        // Classes the first tree leaves alone, or that are nested in one it renames
+        for (Class cls : second.getClasses()) {
+            final String name = cls.getOldName();
+            if (first.tryClass(name) == null && first.mapClass(name).equals(name))
+                composeClass(first, cls, name, ret);
+            if (first.tryNewClass(name) == null) {
+                final String nested = unmapNested(first, name);
+                if (nested != null)
+                    composeClass(first, cls, nested, ret);
+            }
+        }
+        ret.endBulkLoad();
+        return ret;
+    }
+
+    private static void composeClass(final Tree first, final Class next, final String old, final Tree ret) {
+        if (ret.tryClass(old) == null)
+            composeMembers(first, next, null, ret.getClass(old).rename(next.getNewName()));
+    }
+
+    private static void composeMembers(final Tree first, final Class next, final Class cls, final Class out) {
+        for (Field fld : next.getFields()) {
+            if (cls == null || (cls.tryNewField(fld.getOldName()) == null && cls.tryField(fld.getOldName()) == null))
+                out.getField(fld.getOldName()).rename(fld.getNewName());
+        }
+        for (Method mtd : next.getMethods()) {
+            final String desc = unmapDescriptor(first, mtd.getOldDesc());
+            if (desc != null && (cls == null || (cls.tryNewMethod(mtd.getOldName(), mtd.getOldDesc()) == null && cls.tryMethod(mtd.getOldName(), desc) == null)))
+                out.getMethod(mtd.getOldName(), desc).rename(mtd.getNewName());
+        }
+    }
+
+    // The name that the tree maps to the given one, or null if there isn't exactly one
+    private static String unmapClass(final Tree tree, final String name) {
+        final Class cls = tree.tryNewClass(name);
+        if (cls != null)
+            return cls.getOldName();
+        if (tree.tryClass(name) != null)
+            return null;
+
+        final String nested = unmapNested(tree, name);
+        if (nested != null)
+            return nested;
+        return tree.mapClass(name).equals(name) ? name : null;
+    }
+
+    // Nested classes of renamed classes follow their outer class, see NameTrie
+    private static String unmapNested(final Tree tree, final String name) {
+        for (int idx = name.lastIndexOf('$'); idx > 0; idx = name.lastIndexOf('$', idx - 1)) {
+            final Class outer = tree.tryNewClass(name.substring(0, idx));
+            if (outer != null) {
+                final String ret = outer.getOldName() + name.substring(idx);
+                return tree.tryClass(ret) == null && tree.mapClass(ret).equals(name) ? ret : null;
+            }
+        }
+        return null;
+    }
+
+    private static String unmapDescriptor(final Tree tree, final String desc) {
+        final StringBuilder buf = new StringBuilder(desc.length());
+        int copied = 0;
+        for (int start = desc.indexOf('L'); start != -1; start = desc.indexOf('L', start)) {
+            int end = desc.indexOf(';', start);
+            final String cls = unmapClass(tree, desc.substring(start + 1, end));
+            if (cls == null)
+                return null;
+            buf.append(desc, copied, start + 1).append(cls);
+            copied = end;
+            start = end + 1;
+        }
+        return buf.append(desc, copied, desc.length()).toString();
+    }
+
+    public static Tree fromProguard(final Path file, final boolean filterInits) throws IOException {
+        return fromProguard(file, filterInits, new SymbolTable());
+    }
+
+    public static Tree fromProguard(final Path file, final boolean filterInits, final SymbolTable symbols) throws IOException {
+        try (InputStream in = Compression.open(file)) {
+            return ProguardReader.read(in, filterInits, symbols);
+        }
+    }
+
+    private final SymbolTable symbols;
+
+    public Tree() {
+        this(new SymbolTable());
+    }
+
+    public Tree(final SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
     // Package map, an empty string is considered the 'default' package
     private Map<String, String> packages = new HashMap<>();
     private Map<String, Class> o2nClasses = new HashMap<>();
     private Map<String, Class> n2oClasses = new HashMap<>();
     private final Map<String, Set<Class>> references = new HashMap<>();
+    // Remapped descriptors of this tree's methods, entries are replaced when a class they reference is renamed,
+    // and all of them are dropped together with names, as a new class or package can change how any descriptor maps.
+    private final Map<Method, String> descriptors = new ConcurrentHashMap<>();
+    private boolean bulkLoading;
+    private boolean referencesLinked = true;
+    // Built on the first lookup of a name that isn't a class, and dropped whenever a class or package is added.
+    private volatile NameTrie names;
+
+    /*
+     * While bulk loading, renames only change the names, and nothing listens for class renames.
+     * endBulkLoad then rebuilds the New-to-Old class lookup in one pass, instead of updating it on every single rename.
+     * Each class indexes its members by new name the first time it's asked to, and references are only linked once a class is renamed after loading,
+     * so a tree that is only read never parses most of its descriptors. Lookups by new name don't work until endBulkLoad.
+     */
+    public void beginBulkLoad() {
+        bulkLoading = true;
+    }
+
+    public void endBulkLoad() {
+        bulkLoading = false;
+        referencesLinked = false;
+        descriptors.clear();
+        references.clear();
+        n2oClasses.clear();
+        for (Class cls : o2nClasses.values()) {
+            n2oClasses.put(cls.getNewName(), cls);
+            cls.invalidateIndex();
+        }
+    }
+
+    boolean isBulkLoading() {
+        return bulkLoading;
+    }
+
+    boolean hasLinkedReferences() {
+        return referencesLinked;
+    }
+
+    // Registers every method with the classes in its descriptor, so they're told when those classes are renamed.
+    private void linkReferences() {
+        if (referencesLinked)
+            return;
+        references.clear();
+        for (Class cls : o2nClasses.values())
+            cls.linkReferences();
+        referencesLinked = true;
+    }
 
     public void addPackage(String oldPkg, String newPkg) {
         packages.put(oldPkg, newPkg);
+        names = null;
+        descriptors.clear();
+    }
+
+    //Warning: This doesn't create a new copy, so please don't modify the returned map. Old -> New
+    public Map<String, String> getPackages() {
+        return packages;
     }
 
     public Class getClass(String oldName) {
-        return o2nClasses.computeIfAbsent(oldName, k -> new Class(this, oldName));
+        Class ret = o2nClasses.get(oldName);
+        if (ret == null) {
+            ret = new Class(this, symbols.intern(oldName));
+            o2nClasses.put(ret.getOldName(), ret);
+            names = null;
+            descriptors.clear();
+        }
+        return ret;
+    }
+
+    private NameTrie names() {
+        NameTrie ret = names;
+        if (ret == null) {
+            synchronized (this) {
+                ret = names;
+                if (ret == null) {
+                    final NameTrie trie = new NameTrie();
+                    o2nClasses.values().forEach(trie::addClass);
+                    packages.forEach(trie::addPackage);
+                    names = ret = trie;
+                }
+            }
+        }
+        return ret;
     }
 
     public Class tryClass(String oldName) {
         return o2nClasses.get(oldName);
     }
 
+    public Class tryNewClass(String newName) {
+        Class ret = n2oClasses.get(newName);
+        if (ret == null) {
+            ret = o2nClasses.get(newName);
+            return ret != null && ret.getNewName().equals(newName) ? ret : null;
+        }
+        return ret;
+    }
+
     //Warning: This doesn't create a new copy, so please don't modify the returned set.
     public Collection<Class> getClasses() {
         return o2nClasses.values();
@@ -77,11 +311,12 @@ public class Tree implements IMapper {
         Class _cls = o2nClasses.get(cls);
         if (_cls != null)
             return _cls.getNewName();
-        int idx = cls.lastIndexOf('$');
-        if (idx > 0)
-            return mapClass(cls.substring(0, idx)) + cls.substring(idx);
+        return names().map(cls, null, null);
+    }
 
-        return cls; //TODO: Packages
+    // Longest mapped package first, an empty string is the default package
+    public String mapPackage(String pkg) {
+        return packages.isEmpty() ? pkg : names().mapPackage(pkg);
     }
 
     @Override
@@ -99,9 +334,24 @@ public class Tree implements IMapper {
     //Map modifiers are intentionally private you should use the rename functions in the associated objects as they will update all cached lookups.
     void renameClass(Class cls, String newName) {
         //TODO: Add check to not overwrite existing?
-        n2oClasses.remove(cls.getNewName());
+        if (bulkLoading)
+            return;
+        linkReferences();
+        n2oClasses.remove(cls.getNewName(), cls);
         n2oClasses.put(newName, cls);
-        references.getOrDefault(cls.getOldName(), Collections.emptySet()).forEach(c -> c.classRenamed(c, new RenamedMapper(cls.getOldName(), newName)));
+        references.getOrDefault(cls.getOldName(), Collections.emptySet()).forEach(c -> c.classRenamed(cls, new RenamedMapper(cls, newName)));
+    }
+
+    SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    String getNewDesc(Method method) {
+        return descriptors.computeIfAbsent(method, m -> symbols.intern(m.mapDescriptor(this)));
+    }
+
+    void setNewDesc(Method method, String desc) {
+        descriptors.put(method, symbols.intern(desc));
     }
 
     //Add a notification callback when classes are renamed, this allows us to invalidate/rebuild the New-to-Old caches.
@@ -113,19 +363,20 @@ public class Tree implements IMapper {
      * Wrapper class that is the same as this tree, but renames a single class, used in renameClass, before everything updates itself.
      */
     private class RenamedMapper implements IMapper {
-        private final String oldName;
+        private final Class renamed;
         private final String newName;
 
-        private RenamedMapper(String oldName, String newName) {
-            this.oldName = oldName;
+        private RenamedMapper(Class renamed, String newName) {
+            this.renamed = renamed;
             this.newName = newName;
         }
 
         @Override
         public String mapClass(String cls) {
-            if (oldName.equals(cls))
-                return newName;
-            return Tree.this.mapClass(cls);
+            Class _cls = o2nClasses.get(cls);
+            if (_cls != null)
+                return _cls == renamed ? newName : _cls.getNewName();
+            return names().map(cls, renamed, newName);
         }
 
         @Override
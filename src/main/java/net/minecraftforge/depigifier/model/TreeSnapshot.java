@@ -0,0 +1,198 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/*
+ * Compact binary copy of a Tree, so a mapping file only has to be parsed once.
+ *
+ *   header:   magic, version, string count, package count, class count
+ *   strings:  string count + 1 offsets into the data block, followed by the UTF-8 data of every distinct name and descriptor
+ *   packages: old, new
+ *   classes:  old, new
+ *   members:  field count, method count, for every class in the same order
+ *     field:  old, new, type (-1 when unknown)
+ *     method: old, descriptor, new, start line, end line
+ *
+ * Everything is a big endian int, names are indexes into the string table.
+ * The file is memory mapped when read, and each string is only decoded the first time a record references it.
+ * Reading always builds the whole Tree, it is not a lazy view of the file.
+ */
+public class TreeSnapshot {
+    public static final int VERSION = 2;
+    private static final int MAGIC = 0x44504754; // DPGT
+
+    public static void write(final Tree tree, final Path file) throws IOException {
+        final Map<String, Integer> indexes = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+        final ByteArrayOutputStream recordData = new ByteArrayOutputStream();
+        final DataOutputStream records = new DataOutputStream(recordData);
+        final ToIntFunction<String> index = s -> {
+            if (s == null)
+                return -1;
+            return indexes.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        };
+
+        for (Map.Entry<String, String> pkg : tree.getPackages().entrySet()) {
+            records.writeInt(index.applyAsInt(pkg.getKey()));
+            records.writeInt(index.applyAsInt(pkg.getValue()));
+        }
+        for (Class cls : tree.getClasses()) {
+            records.writeInt(index.applyAsInt(cls.getOldName()));
+            records.writeInt(index.applyAsInt(cls.getNewName()));
+        }
+        for (Class cls : tree.getClasses()) {
+            records.writeInt(cls.getFields().size());
+            records.writeInt(cls.getMethods().size());
+            for (Field fld : cls.getFields()) {
+                records.writeInt(index.applyAsInt(fld.getOldName()));
+                records.writeInt(index.applyAsInt(fld.getNewName()));
+                records.writeInt(index.applyAsInt(fld.getType()));
+            }
+            for (Method mtd : cls.getMethods()) {
+                records.writeInt(index.applyAsInt(mtd.getOldName()));
+                records.writeInt(index.applyAsInt(mtd.getOldDesc()));
+                records.writeInt(index.applyAsInt(mtd.getNewName()));
+                records.writeInt(mtd.getStart());
+                records.writeInt(mtd.getEnd());
+            }
+        }
+
+        final byte[][] data = new byte[strings.size()][];
+        for (int x = 0; x < data.length; x++)
+            data[x] = strings.get(x).getBytes(StandardCharsets.UTF_8);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(data.length);
+            out.writeInt(tree.getPackages().size());
+            out.writeInt(tree.getClasses().size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] str : data) {
+                offset += str.length;
+                out.writeInt(offset);
+            }
+            for (byte[] str : data)
+                out.write(str);
+            recordData.writeTo(out);
+        }
+    }
+
+    public static Tree read(final Path file) throws IOException {
+        return read(file, new SymbolTable());
+    }
+
+    public static Tree read(final Path file, final SymbolTable symbols) throws IOException {
+        final ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buf.getInt() != MAGIC)
+            throw new IOException("Not a tree snapshot: " + file);
+        final int version = buf.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported tree snapshot version " + version + ": " + file);
+
+        final int stringCount = buf.getInt();
+        final int packageCount = buf.getInt();
+        final int classCount = buf.getInt();
+        final Strings strings = new Strings(buf, stringCount);
+        final Tree ret = new Tree(symbols);
+        ret.beginBulkLoad();
+        for (int x = 0; x < packageCount; x++)
+            ret.addPackage(strings.next(), strings.next());
+        final Class[] classes = new Class[classCount];
+        for (int x = 0; x < classCount; x++)
+            classes[x] = ret.getClass(strings.next()).rename(strings.next());
+        for (Class cls : classes) {
+            final int fieldCount = buf.getInt();
+            final int methodCount = buf.getInt();
+            for (int y = 0; y < fieldCount; y++) {
+                final Field fld = cls.getField(strings.next());
+                fld.rename(strings.next());
+                final String type = strings.next();
+                if (type != null)
+                    fld.setType(type);
+            }
+            for (int y = 0; y < methodCount; y++) {
+                final Method mtd = cls.getMethod(strings.next(), strings.next()).rename(strings.next());
+                final int start = buf.getInt();
+                final int end = buf.getInt();
+                if (start != -1)
+                    mtd.setLines(start, end);
+            }
+        }
+        ret.endBulkLoad();
+        return ret;
+    }
+
+    /*
+     * Reads string indexes from the record stream, decoding each string the first time it is used.
+     */
+    private static class Strings {
+        private final ByteBuffer buf;
+        private final String[] cache;
+        private final int offsets;
+        private final int data;
+
+        private Strings(final ByteBuffer buf, final int count) {
+            this.buf = buf;
+            this.cache = new String[count];
+            this.offsets = buf.position();
+            this.data = offsets + (cache.length + 1) * 4;
+            buf.position(data + buf.getInt(offsets + cache.length * 4));
+        }
+
+        private String next() {
+            final int idx = buf.getInt();
+            if (idx == -1)
+                return null;
+            String ret = cache[idx];
+            if (ret == null) {
+                final ByteBuffer str = buf.duplicate();
+                str.limit(data + buf.getInt(offsets + (idx + 1) * 4));
+                str.position(data + buf.getInt(offsets + idx * 4));
+                ret = cache[idx] = StandardCharsets.UTF_8.decode(str).toString();
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.Chain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestChain {
+    private static Path map(final Path dir, final String name, final String... lines) throws IOException {
+        return Files.write(dir.resolve(name), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testThreeVersions() throws IOException {
+        final Path dir = Files.createTempDirectory("depigifier");
+        try {
+            final List<Path> files = Arrays.asList(
+                map(dir, "1.txt",
+                    "net.minecraft.Foo -> a:",
+                    "    int count -> b",
+                    "    void tick() -> c",
+                    "    void gone() -> d",
+                    "net.minecraft.Gone -> e:",
+                    "    int size -> f"),
+                map(dir, "2.txt",
+                    "net.minecraft.Foo -> g:",
+                    "    int count -> h",
+                    "    void tick() -> i",
+                    "net.minecraft.Gone -> j:",
+                    "    int size -> k"),
+                map(dir, "3.txt",
+                    "net.minecraft.Foo -> l:",
+                    "    int count -> m",
+                    "    void tick() -> n",
+                    "net.minecraft.Added -> o:"));
+
+            final Path out = dir.resolve("out");
+            final Chain chain = new Chain(files, out);
+            chain.setParallelism(2);
+            chain.run();
+
+            Assertions.assertTrue(Files.isRegularFile(out.resolve("00-01").resolve("joined_forced.txt")), "First step was not written");
+            Assertions.assertTrue(Files.isRegularFile(out.resolve("01-02").resolve("joined_forced.txt")), "Second step was not written");
+            // Gone is only matched in the first step, and Foo.gone in neither, so neither reaches the composed map
+            Assertions.assertEquals(Arrays.asList("a l", "\tb m", "\tc ()V n"), Files.readAllLines(out.resolve("oldtonew.tsrg"), StandardCharsets.UTF_8));
+        } finally {
+            TestMatcher.delete(dir);
+        }
+    }
+}
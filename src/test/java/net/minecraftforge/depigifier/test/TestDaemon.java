@@ -0,0 +1,156 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.Daemon;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class TestDaemon {
+    @Test
+    public void testSplit() {
+        Assertions.assertEquals(Arrays.asList("--oldPG", "a b.txt", "--out", "x", ""), Arrays.asList(Daemon.split("  --oldPG \"a b.txt\"\t--out x  \"\" ")));
+        Assertions.assertEquals(Arrays.asList("--out", "ab cd"), Arrays.asList(Daemon.split("--out a\"b c\"d")), "Quoted text should join the text around it");
+        Assertions.assertEquals(0, Daemon.split("   ").length);
+    }
+
+    // Sends one request and returns the line ending its reply
+    private static String request(final PrintStream out, final BufferedReader in, final String line) throws IOException {
+        out.println(line);
+        out.flush();
+        String reply;
+        while ((reply = in.readLine()) != null) {
+            if (reply.startsWith("OK") || reply.startsWith("ERROR"))
+                return reply;
+        }
+        return null;
+    }
+
+    private static Thread thread(final Daemon daemon) {
+        final Thread thread = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // Port 0 picks a free port, which is only known from the line the daemon prints
+    private static int port(final ByteArrayOutputStream console) throws InterruptedException {
+        String listening = null;
+        for (int x = 0; x < 500 && listening == null; x++) {
+            final String text = new String(console.toByteArray(), StandardCharsets.UTF_8);
+            if (text.contains("\n"))
+                listening = text.substring(0, text.indexOf('\n')).trim();
+            else
+                Thread.sleep(10);
+        }
+        Assertions.assertNotNull(listening, "Daemon did not start");
+        return Integer.parseInt(listening.substring(listening.lastIndexOf(':') + 1));
+    }
+
+    @Test
+    public void testRequests() throws Exception {
+        final Path dir = Files.createTempDirectory("depigifier");
+        final ByteArrayOutputStream console = new ByteArrayOutputStream();
+        final Daemon daemon = new Daemon(0, 1);
+        daemon.setConsole(new PrintStream(console, true));
+        final Thread thread = thread(daemon);
+        try {
+            final Path oldMap = Files.write(dir.resolve("old map.txt"), Arrays.asList("net.minecraft.Foo -> a:", "    int count -> b"), StandardCharsets.UTF_8);
+            final Path newMap = Files.write(dir.resolve("new map.txt"), Arrays.asList("net.minecraft.Foo -> c:", "    int count -> d"), StandardCharsets.UTF_8);
+            final Path out = dir.resolve("out dir");
+            thread.start();
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port(console))) {
+                final PrintStream send = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8.name());
+                final BufferedReader receive = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                final String run = "--oldPG \"" + oldMap + "\" --newPG \"" + newMap + "\" --out \"" + out + "\"";
+
+                Assertions.assertTrue(request(send, receive, run).startsWith("OK "), "Request was not served");
+                Assertions.assertEquals(Arrays.asList("a c", "\tb d"), Files.readAllLines(out.resolve("oldtonew.tsrg"), StandardCharsets.UTF_8));
+                Assertions.assertTrue(request(send, receive, run).startsWith("OK "), "Repeated request was not served");
+
+                Assertions.assertTrue(request(send, receive, "--oldPG \"" + dir.resolve("missing.txt") + "\" --newPG \"" + newMap + "\" --out \"" + out + "\"").startsWith("ERROR "), "Missing file was not reported");
+                Assertions.assertTrue(request(send, receive, "--newPG \"" + newMap + "\" --out \"" + out + "\"").startsWith("ERROR "), "Missing option was not reported");
+                Assertions.assertTrue(request(send, receive, run + " --oldJar \"" + oldMap + "\"").startsWith("ERROR "), "Jar for only one side was not reported");
+                Assertions.assertTrue(request(send, receive, run + " --overrides").startsWith("ERROR "), "Overrides without jars were not reported");
+                Assertions.assertEquals("OK 0", request(send, receive, "stop"));
+            }
+            thread.join(10000);
+            Assertions.assertFalse(thread.isAlive(), "Daemon did not stop");
+        } finally {
+            TestMatcher.delete(dir);
+        }
+    }
+
+    @Test
+    public void testFailedReport() throws Exception {
+        final Path dir = Files.createTempDirectory("depigifier");
+        final ByteArrayOutputStream console = new ByteArrayOutputStream();
+        final Daemon daemon = new Daemon(0, 1);
+        daemon.setConsole(new PrintStream(console, true));
+        // Reports are written on their own threads, so the failure comes back through the pool
+        daemon.setParallelism(2);
+        final Thread thread = thread(daemon);
+        try {
+            final Path oldMap = Files.write(dir.resolve("old.txt"), Arrays.asList("net.minecraft.Foo -> a:", "    int count -> b"), StandardCharsets.UTF_8);
+            final Path newMap = Files.write(dir.resolve("new.txt"), Arrays.asList("net.minecraft.Foo -> c:", "    int count -> d"), StandardCharsets.UTF_8);
+            final Path out = Files.createDirectories(dir.resolve("out"));
+            // A directory in place of a report can't be written to
+            final Path blocked = Files.createDirectory(out.resolve("newclasses.txt"));
+            thread.start();
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port(console))) {
+                final PrintStream send = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8.name());
+                final BufferedReader receive = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                final String run = "--oldPG \"" + oldMap + "\" --newPG \"" + newMap + "\" --out \"" + out + "\"";
+
+                final String failed = request(send, receive, run);
+                Assertions.assertNotNull(failed, "Daemon stopped on a failed report");
+                Assertions.assertTrue(failed.startsWith("ERROR "), "Failed report was not reported");
+                Files.delete(blocked);
+                Assertions.assertTrue(request(send, receive, run).startsWith("OK "), "Request after a failed report was not served");
+                Assertions.assertEquals("OK 0", request(send, receive, "stop"));
+            }
+            thread.join(10000);
+            Assertions.assertFalse(thread.isAlive(), "Daemon did not stop");
+        } finally {
+            TestMatcher.delete(dir);
+        }
+    }
+}
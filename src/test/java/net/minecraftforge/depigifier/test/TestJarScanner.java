@@ -0,0 +1,128 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.JarScanner;
+import net.minecraftforge.depigifier.MatchResult;
+import net.minecraftforge.depigifier.Matcher;
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.Tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class TestJarScanner {
+    private static Tree tree(final String cls, final String compute, final String helper) {
+        final Tree tree = new Tree();
+        final Class foo = tree.getClass("net/minecraft/Foo").rename(cls);
+        foo.getMethod(compute, "(I)I").rename("b");
+        foo.getMethod("helper", "()V").rename(helper);
+        foo.getMethod("other", "(I)I").rename("d");
+        return tree;
+    }
+
+    // The obfuscated class, compute doubles its argument and calls helper, other has a different body
+    private static void jar(final Path file, final String cls, final String helper) throws IOException {
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, cls, null, "java/lang/Object", null);
+
+        MethodVisitor mtd = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "b", "(I)I", null, null);
+        mtd.visitCode();
+        mtd.visitMethodInsn(Opcodes.INVOKESTATIC, cls, helper, "()V", false);
+        mtd.visitVarInsn(Opcodes.ILOAD, 0);
+        mtd.visitInsn(Opcodes.ICONST_2);
+        mtd.visitInsn(Opcodes.IMUL);
+        mtd.visitInsn(Opcodes.IRETURN);
+        mtd.visitMaxs(0, 0);
+        mtd.visitEnd();
+
+        mtd = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "d", "(I)I", null, null);
+        mtd.visitCode();
+        mtd.visitVarInsn(Opcodes.ILOAD, 0);
+        mtd.visitInsn(Opcodes.ICONST_3);
+        mtd.visitInsn(Opcodes.IADD);
+        mtd.visitInsn(Opcodes.IRETURN);
+        mtd.visitMaxs(0, 0);
+        mtd.visitEnd();
+
+        mtd = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, helper, "()V", null, null);
+        mtd.visitCode();
+        mtd.visitInsn(Opcodes.RETURN);
+        mtd.visitMaxs(0, 0);
+        mtd.visitEnd();
+        writer.visitEnd();
+
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry(cls + ".class"));
+            zip.write(writer.toByteArray());
+            zip.closeEntry();
+        }
+    }
+
+    @Test
+    public void testBodies() throws IOException {
+        // Same code in both versions, with different obfuscated names and compute renamed to calculate
+        final Tree oldTree = tree("a", "compute", "c");
+        final Tree newTree = tree("x", "calculate", "z");
+        final Path oldJar = Files.createTempFile("depigifier", ".jar");
+        final Path newJar = Files.createTempFile("depigifier", ".jar");
+        try {
+            jar(oldJar, "a", "c");
+            jar(newJar, "x", "z");
+            JarScanner.scan(oldJar, oldTree, 1);
+            JarScanner.scan(newJar, newTree, 2);
+        } finally {
+            Files.delete(oldJar);
+            Files.delete(newJar);
+        }
+
+        final Class oldFoo = oldTree.tryClass("net/minecraft/Foo");
+        final Class newFoo = newTree.tryClass("net/minecraft/Foo");
+        final Method compute = oldFoo.tryMethod("compute", "(I)I");
+        final Method calculate = newFoo.tryMethod("calculate", "(I)I");
+        Assertions.assertTrue(compute.hasBody());
+        Assertions.assertEquals(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, compute.getAccess(), "Access flags were not recorded");
+        Assertions.assertEquals(compute.getBodyHash(), calculate.getBodyHash(), "Renamed method hashed differently");
+        Assertions.assertNotEquals(compute.getBodyHash(), oldFoo.tryMethod("other", "(I)I").getBodyHash());
+        Assertions.assertFalse(oldFoo.tryMethod("helper", "()V").hasBody(), "Trivial bodies should not be hashed");
+        Assertions.assertTrue(compute.getCalls().contains(oldFoo.tryMethod("helper", "()V")), "Call edge was not recorded");
+
+        final Matcher matcher = new Matcher(oldTree, newTree);
+        matcher.setConsole(new PrintStream(new ByteArrayOutputStream()));
+        matcher.computeClassListDifferences();
+        final MatchResult result = matcher.compareExistingClasses();
+        Assertions.assertSame(compute, result.getMethods().get(calculate), "Renamed method was not matched by its body");
+        Assertions.assertTrue(result.getMissingMethods().isEmpty());
+    }
+}
@@ -20,6 +20,7 @@
 package net.minecraftforge.depigifier.test;
 
 import net.minecraftforge.depigifier.IMapper;
+import net.minecraftforge.depigifier.MapperCache;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -40,6 +41,30 @@ public class TestMapper {
         Assertions.assertEquals(mapperFunction.apply("Cheese/String"), "Output/String", "Chained transformation failed");
     }
 
+    @Test
+    public void testMapperCache() {
+        final CountingMapper first = new CountingMapper("Cheese", "Input");
+        final CountingMapper second = new CountingMapper("Input", "Output");
+        final MapperCache cache = new MapperCache(16);
+        cache.addMapper(first);
+        cache.addMapper(second);
+
+        for (String name : new String[] { "a", "b", "c" }) {
+            Assertions.assertEquals(name, cache.mapField("Cheese/Foo", name));
+            Assertions.assertEquals(name + "()V", cache.mapMethod("Cheese/Foo", name + "()V"));
+        }
+        Assertions.assertEquals("Output/Foo", cache.mapClass("Cheese/Foo"));
+        Assertions.assertEquals(1, first.classes, "Owner was mapped again by the first mapper");
+        Assertions.assertEquals(1, second.classes, "Owner was mapped again by the second mapper");
+
+        // Once full, results are still right but no longer stored
+        final MapperCache full = new MapperCache(0);
+        full.addMapper(first);
+        Assertions.assertEquals("Input/Foo", full.mapClass("Cheese/Foo"));
+        Assertions.assertEquals("Input/Foo", full.mapClass("Cheese/Foo"));
+        Assertions.assertEquals(3, first.classes);
+    }
+
     public Function<String,String> getMapperFunction(Function<IMapper,Function<String,String>> mapperCall) {
         return s -> {
             String acc = s;
@@ -82,4 +107,18 @@ public class TestMapper {
             return method;
         }
     }
+
+    private static class CountingMapper extends TestIMapper {
+        private int classes;
+
+        private CountingMapper(String input, String output) {
+            super(input, output);
+        }
+
+        @Override
+        public String mapClass(String cls) {
+            classes++;
+            return super.mapClass(cls);
+        }
+    }
 }
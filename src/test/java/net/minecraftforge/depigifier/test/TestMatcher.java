@@ -0,0 +1,365 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.MatchListener;
+import net.minecraftforge.depigifier.MatchResult;
+import net.minecraftforge.depigifier.Matcher;
+import net.minecraftforge.depigifier.StructuralMatcher;
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Field;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.Tree;
+import net.minecraftforge.srgutils.IMappingFile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestMatcher {
+    @Test
+    public void testResult() {
+        final Tree oldTree = new Tree();
+        oldTree.getClass("net/minecraft/Foo").rename("a").getMethod("tick", "()V").rename("b");
+        oldTree.getClass("net/minecraft/Gone").rename("b");
+        final Tree newTree = new Tree();
+        newTree.getClass("net/minecraft/Foo").rename("c").getMethod("tick", "()V").rename("d");
+        newTree.getClass("net/minecraft/Foo").getMethod("render", "()V").rename("e");
+        newTree.getClass("net/minecraft/Added").rename("f");
+
+        final List<String> events = new ArrayList<>();
+        final Matcher matcher = new Matcher(oldTree, newTree);
+        matcher.setConsole(new PrintStream(new ByteArrayOutputStream()));
+        matcher.addListener(new MatchListener() {
+            @Override
+            public void classMissing(Class old) {
+                events.add("-" + old.getOldName());
+            }
+
+            @Override
+            public void methodMatched(Method old, Method nw) {
+                events.add(old.getNewName() + ">" + nw.getNewName());
+            }
+
+            @Override
+            public void membersCompared(MatchResult result) {
+                events.add("done");
+            }
+        });
+        matcher.computeClassListDifferences();
+        final MatchResult result = matcher.compareExistingClasses();
+
+        Assertions.assertEquals("[-net/minecraft/Gone, b>d, done]", events.toString());
+        Assertions.assertEquals("a", result.getClasses().get(newTree.tryClass("net/minecraft/Foo")).getNewName());
+        Assertions.assertEquals("net/minecraft/Added", result.getNewClasses().get(0).getOldName());
+        Assertions.assertEquals("render", result.getNewMethods().get(0).getOldName());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> result.getMissingClasses().clear(), "Result should not be modifiable");
+    }
+
+    // Two versions of the same made up classes, some of them and their members removed, renamed or added in between.
+    static Tree[] versions(final long seed) {
+        final Random rand = new Random(seed);
+        final Tree oldTree = new Tree();
+        final Tree newTree = new Tree();
+        for (int x = 0; x < 300; x++) {
+            final String name = "net/minecraft/C" + x;
+            final Class old = oldTree.getClass(name).rename("a" + x);
+            final int state = rand.nextInt(20);
+            if (state == 0)
+                continue;
+            final Class nw = newTree.getClass(state == 1 ? name + "Moved" : name).rename("b" + x);
+            for (int y = 0; y < 20; y++) {
+                final String desc = "(Lnet/minecraft/C" + (x + y) % 300 + ";)V";
+                old.getField("f" + y).rename("c" + y);
+                old.getMethod("m" + y, desc).rename("d" + y);
+                int change = rand.nextInt(10);
+                if (change != 0)
+                    nw.getField(change == 1 ? "g" + y : "f" + y).rename("e" + y);
+                change = rand.nextInt(10);
+                if (change != 0)
+                    nw.getMethod(change == 1 ? "n" + y : "m" + y, desc).rename("h" + y);
+            }
+        }
+        for (int x = 0; x < 20; x++)
+            newTree.getClass("net/minecraft/Added" + x).rename("z" + x);
+        return new Tree[] { oldTree, newTree };
+    }
+
+    @Test
+    public void testParallelReports() throws IOException {
+        final Path sequential = Files.createTempDirectory("depigifier");
+        final Path parallel = Files.createTempDirectory("depigifier");
+        try {
+            for (Path dir : new Path[] { sequential, parallel }) {
+                final Tree[] trees = versions(2);
+                final Matcher matcher = new Matcher(trees[0], trees[1], dir);
+                matcher.setConsole(new PrintStream(new ByteArrayOutputStream()));
+                matcher.setParallelism(dir == sequential ? 1 : 8);
+                matcher.computeClassListDifferences();
+                matcher.matchStructurally();
+                matcher.compareExistingClasses();
+            }
+
+            final List<String> files = list(sequential);
+            Assertions.assertEquals(files, list(parallel));
+            Assertions.assertTrue(files.contains("joined_forced.txt"), "Reports were not written");
+            for (String file : files)
+                Assertions.assertArrayEquals(Files.readAllBytes(sequential.resolve(file)), Files.readAllBytes(parallel.resolve(file)), file + " differs between 1 and 8 threads");
+        } finally {
+            delete(sequential);
+            delete(parallel);
+        }
+    }
+
+    private static List<String> list(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    static void delete(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEventOrder() {
+        final List<List<String>> runs = new ArrayList<>();
+        for (int threads : new int[] { 1, 8 }) {
+            final Tree[] trees = versions(1);
+            final List<String> events = new ArrayList<>();
+            final Matcher matcher = new Matcher(trees[0], trees[1]);
+            matcher.setConsole(new PrintStream(new ByteArrayOutputStream()));
+            matcher.setParallelism(threads);
+            matcher.addListener(new MatchListener() {
+                @Override
+                public void classMatched(Class old, Class nw) {
+                    events.add(old.getOldName() + ">" + nw.getOldName());
+                }
+
+                @Override
+                public void fieldMatched(Field old, Field nw) {
+                    events.add(old.getOwner().getOldName() + "." + old.getOldName() + ">" + nw.getOldName());
+                }
+
+                @Override
+                public void fieldMissing(Field old) {
+                    events.add("-" + old.getOwner().getOldName() + "." + old.getOldName());
+                }
+
+                @Override
+                public void methodMatched(Method old, Method nw) {
+                    events.add(old.getOwner().getOldName() + "." + old.getOldName() + old.getOldDesc() + ">" + nw.getOldName());
+                }
+
+                @Override
+                public void methodAdded(Method nw) {
+                    events.add("+" + nw.getOwner().getOldName() + "." + nw.getOldName() + nw.getOldDesc());
+                }
+            });
+            matcher.computeClassListDifferences();
+            matcher.compareExistingClasses();
+            runs.add(events);
+        }
+        Assertions.assertFalse(runs.get(0).isEmpty());
+        Assertions.assertEquals(runs.get(0), runs.get(1), "Events depend on the number of threads");
+    }
+
+    private static Tree hierarchy(final String name, final int access) {
+        final Tree tree = new Tree();
+        final Class base = tree.getClass("Base");
+        base.getMethod(name, "()V").setAccess(access);
+        for (String impl : new String[] { "First", "Second", "Third" }) {
+            final Class cls = tree.getClass(impl).setParents(Collections.singletonList(base));
+            cls.getMethod(name, "()V").setAccess(access);
+            cls.getMethod("other", "()V");
+        }
+        return tree;
+    }
+
+    @Test
+    public void testOverrides() {
+        final Tree oldTree = hierarchy("run", Opcodes.ACC_PUBLIC);
+        final Tree newTree = hierarchy("walk", Opcodes.ACC_PUBLIC);
+        newTree.getClass("Third").getMethod("run", "()V");
+
+        final Tree manual = new Tree();
+        manual.getClass("Base").getMethod("run", "()V").rename("walk");
+        final Matcher matcher = new Matcher(oldTree, newTree);
+        matcher.setConsole(new PrintStream(new ByteArrayOutputStream()));
+        matcher.addMapper(manual);
+        matcher.setOverrides(true);
+        matcher.computeClassListDifferences();
+        final MatchResult result = matcher.compareExistingClasses();
+
+        Assertions.assertEquals("run", result.getMethods().get(newTree.tryClass("First").tryMethod("walk", "()V")).getOldName(), "Match was not propagated to the family");
+        Assertions.assertEquals("run", result.getMethods().get(newTree.tryClass("Second").tryMethod("walk", "()V")).getOldName());
+        Assertions.assertNull(result.getMethods().get(newTree.tryClass("Third").tryMethod("walk", "()V")), "Class with the old name still present should not change");
+        Assertions.assertEquals(1, result.getNewMethods().size());
+        Assertions.assertTrue(result.getMissingMethods().isEmpty());
+
+        // Static and private methods with the same name don't override each other, so the match stays on Base
+        for (int access : new int[] { Opcodes.ACC_STATIC, Opcodes.ACC_PRIVATE }) {
+            final Tree oldHidden = hierarchy("run", access);
+            final Tree newHidden = hierarchy("walk", access);
+            final Matcher hidden = new Matcher(oldHidden, newHidden);
+            hidden.setConsole(new PrintStream(new ByteArrayOutputStream()));
+            hidden.addMapper(manual);
+            hidden.setOverrides(true);
+            hidden.computeClassListDifferences();
+            final MatchResult separate = hidden.compareExistingClasses();
+
+            Assertions.assertEquals("run", separate.getMethods().get(newHidden.tryClass("Base").tryMethod("walk", "()V")).getOldName());
+            Assertions.assertNull(separate.getMethods().get(newHidden.tryClass("First").tryMethod("walk", "()V")), "Method with access " + access + " joined a family");
+            Assertions.assertEquals(3, separate.getNewMethods().size());
+            Assertions.assertEquals(3, separate.getMissingMethods().size());
+        }
+    }
+
+    @Test
+    public void testLines() {
+        final Tree oldTree = new Tree();
+        final Class oldFoo = oldTree.getClass("net/minecraft/Foo");
+        oldFoo.getMethod("keep", "()V").setLines(1, 5);
+        oldFoo.getMethod("update", "()V").setLines(10, 20);
+        oldFoo.getMethod("load", "(Lold/Data;)V").setLines(30, 40);
+        oldFoo.getMethod("size", "()I").setLines(60, 62);
+        oldTree.getClass("old/Data");
+
+        final Tree newTree = new Tree();
+        final Class newFoo = newTree.getClass("net/minecraft/Foo");
+        newFoo.getMethod("keep", "()V").setLines(4, 8);
+        newFoo.getMethod("tick", "()V").setLines(12, 22);
+        newFoo.getMethod("read", "(Lnew/Data;)V").setLines(35, 45);
+        newFoo.getMethod("length", "()J").setLines(63, 65);
+        newTree.getClass("new/Data");
+
+        final Tree manual = new Tree();
+        manual.getClass("old/Data").rename("new/Data");
+        final Matcher matcher = new Matcher(oldTree, newTree);
+        matcher.setConsole(new PrintStream(new ByteArrayOutputStream()));
+        matcher.addMapper(manual);
+        matcher.setLineMatching(true);
+        matcher.computeClassListDifferences();
+        final MatchResult result = matcher.compareExistingClasses();
+
+        Assertions.assertEquals("update", result.getMethods().get(newFoo.tryMethod("tick", "()V")).getOldName(), "Shifted range was not matched");
+        Assertions.assertEquals("load", result.getMethods().get(newFoo.tryMethod("read", "(Lnew/Data;)V")).getOldName(), "Mapped descriptor was not matched");
+        Assertions.assertNull(result.getMethods().get(newFoo.tryMethod("length", "()J")), "Different descriptors should not match");
+        Assertions.assertEquals(Collections.singletonList(oldFoo.tryMethod("size", "()I")), result.getMissingMethods());
+    }
+
+    private static Class shape(final Tree tree, final String name, final String... descs) {
+        final Class cls = tree.getClass(name);
+        for (int x = 0; x < descs.length; x++) {
+            if (descs[x].charAt(0) == '(')
+                cls.getMethod("m" + x, descs[x]);
+            else
+                cls.getField("f" + x).setType(descs[x]);
+        }
+        return cls;
+    }
+
+    @Test
+    public void testStructural() {
+        final Tree oldTree = new Tree();
+        final Class foo = shape(oldTree, "old/Foo", "I", "Ljava/lang/String;", "(I)V");
+        final Class ref = shape(oldTree, "old/Ref", "(Lold/Foo;)V", "()V");
+        final Class other = shape(oldTree, "old/Other", "(Lold/Gone;)V", "()V");
+        final Class twinA = shape(oldTree, "old/TwinA", "J", "(J)J");
+        final Class twinB = shape(oldTree, "old/TwinB", "J", "(J)J");
+        final Class single = shape(oldTree, "old/Single", "Z", "(Z)Z");
+        shape(oldTree, "old/Gone");
+
+        final Tree newTree = new Tree();
+        final Class renamed = shape(newTree, "new/Renamed", "I", "Ljava/lang/String;", "(I)V");
+        final Class newRef = shape(newTree, "new/Ref", "(Lnew/Renamed;)V", "()V");
+        final Class newOther = shape(newTree, "new/Other", "(Lnew/Added;)V", "()V");
+        final Class newTwin = shape(newTree, "new/Twin", "J", "(J)J");
+        final Class singleA = shape(newTree, "new/SingleA", "Z", "(Z)Z");
+        final Class singleB = shape(newTree, "new/SingleB", "Z", "(Z)Z");
+        shape(newTree, "new/Added");
+
+        final Map<Class, Class> found = new StructuralMatcher(oldTree, newTree, new HashMap<>())
+            .match(Arrays.asList(foo, ref, other, twinA, twinB, single), Arrays.asList(renamed, newRef, newOther, newTwin, singleA, singleB));
+
+        Assertions.assertSame(renamed, found.get(foo));
+        Assertions.assertSame(newRef, found.get(ref), "Match of a referenced class did not make the fingerprint unique");
+        Assertions.assertSame(newOther, found.get(other), "Class left alone once its twin was matched");
+        Assertions.assertFalse(found.containsValue(newTwin), "Fingerprint shared by two old classes should not match");
+        Assertions.assertNull(found.get(single), "Fingerprint shared by two new classes should not match");
+        Assertions.assertEquals(3, found.size());
+    }
+
+    @Test
+    public void testMappingFormats() throws IOException {
+        final Tree oldTree = new Tree();
+        final Class oldFoo = oldTree.getClass("net/minecraft/Foo").rename("a");
+        oldFoo.getField("count").setType("I").rename("b");
+        oldFoo.getMethod("tick", "(Lnet/minecraft/Foo;)V").rename("c");
+        final Tree newTree = new Tree();
+        final Class newFoo = newTree.getClass("net/minecraft/Foo").rename("x");
+        newFoo.getField("count").setType("I").rename("y");
+        newFoo.getMethod("tick", "(Lnet/minecraft/Foo;)V").rename("z");
+
+        final Path dir = Files.createTempDirectory("depigifier");
+        try {
+            final Matcher matcher = new Matcher(oldTree, newTree, dir);
+            matcher.setConsole(new PrintStream(new ByteArrayOutputStream()));
+            matcher.setMappingFormats(EnumSet.allOf(IMappingFile.Format.class), true);
+            matcher.computeClassListDifferences();
+            matcher.compareExistingClasses();
+
+            for (IMappingFile.Format format : IMappingFile.Format.values()) {
+                final String ext = format.name().toLowerCase(Locale.ROOT);
+                final IMappingFile map = IMappingFile.load(dir.resolve("mappings").resolve("oldtonew." + ext).toFile());
+                Assertions.assertEquals("x", map.remapClass("a"), "Class in " + format);
+                Assertions.assertEquals("y", map.getClass("a").remapField("b"), "Field in " + format);
+                Assertions.assertEquals("z", map.getClass("a").remapMethod("c", "(La;)V"), "Method in " + format);
+
+                final IMappingFile reversed = IMappingFile.load(dir.resolve("mappings").resolve("newtoold." + ext).toFile());
+                Assertions.assertEquals("a", reversed.remapClass("x"), "Reversed class in " + format);
+                Assertions.assertEquals("c", reversed.getClass("x").remapMethod("z", "(Lx;)V"), "Reversed method in " + format);
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.ProguardReader;
+import net.minecraftforge.depigifier.model.Tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class TestProguardReader {
+    private static final String MAP =
+        "# compiler: R8\n" +
+        "net.minecraft.world.Foo -> a:\n" +
+        "    int count -> a\n" +
+        "    java.lang.String[] names -> b\n" +
+        "    1:4:void <init>() -> <init>\n" +
+        "    10:20:net.minecraft.world.Foo copy(int,java.lang.String[][]) -> a\n" +
+        "    30:30:void helper():45:45 -> c\n" +
+        "    30:31:void tick() -> c\n" +
+        "    40:41:void tick() -> c\n" +
+        "    50:50:void net.minecraft.world.Bar.inlined():5:5 -> d\n" +
+        "net.minecraft.world.Foo$Inner -> a$a:\n";
+
+    private static Tree read(final boolean filterInits) throws IOException {
+        return ProguardReader.read(new ByteArrayInputStream(MAP.getBytes(StandardCharsets.UTF_8)), filterInits);
+    }
+
+    @Test
+    public void testClassesAndFields() throws IOException {
+        final Tree tree = read(true);
+        Assertions.assertEquals("a", tree.mapClass("net/minecraft/world/Foo"), "Class was not renamed");
+        Assertions.assertEquals("a$a", tree.mapClass("net/minecraft/world/Foo$Inner"), "Inner class was not renamed");
+
+        final Class cls = tree.tryClass("net/minecraft/world/Foo");
+        Assertions.assertEquals("a", cls.mapField("count"));
+        Assertions.assertEquals("I", cls.tryField("count").getType(), "Field type was not read");
+        Assertions.assertEquals("[Ljava/lang/String;", cls.tryField("names").getType(), "Array field type was not read");
+    }
+
+    @Test
+    public void testMethods() throws IOException {
+        final Class cls = read(true).tryClass("net/minecraft/world/Foo");
+        Assertions.assertNull(cls.tryMethod("<init>", "()V"), "Constructors should be filtered");
+        Assertions.assertNull(cls.tryMethod("inlined", "()V"), "Methods inlined from other classes should be skipped");
+
+        final Method copy = cls.tryMethod("copy", "(I[[Ljava/lang/String;)Lnet/minecraft/world/Foo;");
+        Assertions.assertNotNull(copy, "Descriptor was not converted");
+        Assertions.assertEquals("a", copy.getNewName());
+        Assertions.assertEquals(10, copy.getStart());
+        Assertions.assertEquals(20, copy.getEnd());
+
+        final Method tick = cls.tryMethod("tick", "()V");
+        Assertions.assertEquals(30, tick.getStart(), "Line ranges should be merged");
+        Assertions.assertEquals(41, tick.getEnd(), "Line ranges should be merged");
+
+        Assertions.assertFalse(cls.tryMethod("helper", "()V").hasLines(), "Inlined frames should not provide line numbers");
+        Assertions.assertNotNull(read(false).tryClass("net/minecraft/world/Foo").tryMethod("<init>", "()V"), "Constructors should be kept");
+    }
+}
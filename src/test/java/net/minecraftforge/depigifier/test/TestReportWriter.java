@@ -0,0 +1,98 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.ReportWriter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class TestReportWriter {
+    private static final int FILES = 16;
+    private static final int LINES = 5000;
+
+    private static void writeAll(final ReportWriter writer, final Path dir) {
+        for (int x = 0; x < FILES; x++) {
+            final int file = x;
+            if (file % 2 == 0)
+                writer.write(dir.resolve(file + ".txt"), () -> IntStream.range(0, LINES).mapToObj(y -> file + ":" + y));
+            else
+                writer.stream(dir.resolve(file + ".txt"), out -> IntStream.range(0, LINES).forEach(y -> out.accept(file + ":" + y)));
+        }
+        writer.await();
+    }
+
+    @Test
+    public void testConcurrentWrites() throws IOException {
+        final Path sequential = Files.createTempDirectory("depigifier");
+        final Path parallel = Files.createTempDirectory("depigifier");
+        try {
+            writeAll(new ReportWriter(1), sequential);
+            writeAll(new ReportWriter(4), parallel);
+            for (int x = 0; x < FILES; x++) {
+                final int file = x;
+                final List<String> lines = Files.readAllLines(parallel.resolve(x + ".txt"), StandardCharsets.UTF_8);
+                Assertions.assertEquals(IntStream.range(0, LINES).mapToObj(y -> file + ":" + y).collect(Collectors.toList()), lines, "Lines of " + x + ".txt are missing or out of order");
+                Assertions.assertArrayEquals(Files.readAllBytes(sequential.resolve(x + ".txt")), Files.readAllBytes(parallel.resolve(x + ".txt")));
+            }
+        } finally {
+            TestMatcher.delete(sequential);
+            TestMatcher.delete(parallel);
+        }
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        final Path dir = Files.createTempDirectory("depigifier");
+        try {
+            final ReportWriter writer = new ReportWriter(4);
+            writer.stream(dir.resolve("bad.txt"), out -> {
+                out.accept("first");
+                throw new IllegalStateException("broken report");
+            });
+            writer.stream(dir.resolve("worse.txt"), out -> {
+                throw new IllegalArgumentException("another broken report");
+            });
+            // Still being written when the failures are seen, it has to be finished instead of cut off
+            writer.stream(dir.resolve("good.txt"), out -> IntStream.range(0, LINES).forEach(y -> {
+                if (y % 100 == 0)
+                    LockSupport.parkNanos(1000000);
+                out.accept(Integer.toString(y));
+            }));
+
+            final IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, writer::await, "Failure of a report was not rethrown");
+            Assertions.assertEquals("broken report", e.getMessage());
+            Assertions.assertEquals(1, e.getSuppressed().length, "Later failure was not added to the first");
+            Assertions.assertEquals(LINES, Files.readAllLines(dir.resolve("good.txt")).size(), "Other reports should still be written");
+        } finally {
+            TestMatcher.delete(dir);
+        }
+    }
+}
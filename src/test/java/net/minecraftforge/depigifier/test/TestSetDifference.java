@@ -0,0 +1,78 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.SetDifference;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class TestSetDifference {
+    private static final Set<String> LEFT = new HashSet<>(Arrays.asList("a", "b", "c", "d"));
+    private static final Set<String> RIGHT = new HashSet<>(Arrays.asList("c", "d", "e"));
+
+    @Test
+    public void testCompare() {
+        final SetDifference<String> sd = new SetDifference<>(LEFT, RIGHT);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("a", "b")), sd.getLeftOnly());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("c", "d")), sd.getCommon());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("e")), sd.getRightOnly());
+        Assertions.assertEquals(4, LEFT.size(), "Input was modified");
+    }
+
+    @Test
+    public void testTransformed() {
+        final Set<String> leftOnly = new HashSet<>();
+        final Map<String, String> common = new HashMap<>();
+        final Set<String> rightOnly = new HashSet<>();
+        SetDifference.compare(LEFT, String::toUpperCase, new HashSet<>(Arrays.asList("B", "D", "F")), leftOnly::add, common::put, rightOnly::add);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("a", "c")), leftOnly);
+        Assertions.assertEquals(2, common.size());
+        Assertions.assertEquals("B", common.get("b"));
+        Assertions.assertEquals("D", common.get("d"));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("F")), rightOnly);
+
+        final IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> SetDifference.compare(Arrays.asList("a", "b", "A"), String::toUpperCase,
+            RIGHT, l -> {}, (l, r) -> {}, r -> {}));
+        Assertions.assertEquals("Duplicate key A", e.getMessage());
+    }
+
+    @Test
+    public void testMerge() {
+        final Set<String> leftOnly = new HashSet<>();
+        final Map<String, String> common = new HashMap<>();
+        final Set<String> rightOnly = new HashSet<>();
+        SetDifference.merge(new TreeSet<>(LEFT).iterator(), String::toUpperCase, new TreeSet<>(Arrays.asList("B", "D", "F", "G")).iterator(), Comparator.naturalOrder(),
+            leftOnly::add, common::put, rightOnly::add);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("a", "c")), leftOnly);
+        Assertions.assertEquals(2, common.size());
+        Assertions.assertEquals("B", common.get("b"));
+        Assertions.assertEquals("D", common.get("d"));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("F", "G")), rightOnly);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.Sorters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class TestSorters {
+    private static final String PADDING = "00000000000000000000000000000000000000000000000000";
+
+    // The comparators as they were before the keys were added, the keys must order everything exactly the same
+    private static final Comparator<String> LEGACY_CLASSES = (o1, o2) -> {
+        if (o1.equals(o2))
+            return 0;
+
+        String[] pts1 = o1.split("\\$");
+        String[] pts2 = o2.split("\\$");
+
+        int s1 = pts1[0].indexOf('/');
+        int s2 = pts2[0].indexOf('/');
+        if (s1 != -1 && s2 != -1)
+            return o1.compareTo(o2);
+        if (s1 != -1)
+            return 1;
+        if (s2 != -1)
+            return -1;
+
+        if (pts1[0].length() != pts2[0].length())
+            return pts1[0].length() - pts2[0].length();
+
+        int ret = pts1[0].compareTo(pts2[0]);
+        if (ret != 0)
+            return ret;
+
+        for (int x = 1; x < pts1.length; x++) {
+            if (x >= pts2.length)
+                return 1;
+
+            String l = PADDING.substring(pts1[x].length()) + pts1[x];
+            String r = PADDING.substring(pts2[x].length()) + pts2[x];
+            ret = l.compareTo(r);
+            if (ret != 0)
+                return ret;
+        }
+        return -1;
+    };
+
+    private static final Comparator<String> LEGACY_FIELDS = (o1, o2) -> {
+        String[] pts1 = o1.split("\\.");
+        String[] pts2 = o2.split("\\.");
+        int ret = LEGACY_CLASSES.compare(pts1[0], pts2[0]);
+        if (ret != 0)
+            return ret;
+        return pts1[1].compareTo(pts2[1]);
+    };
+
+    private static final Comparator<String> LEGACY_METHODS = (o1, o2) -> {
+        String[] pts1 = o1.split(" ");
+        String[] pts2 = o2.split(" ");
+        int ret = LEGACY_FIELDS.compare(pts1[0], pts2[0]);
+        if (ret != 0)
+            return ret;
+        return pts1[1].compareTo(pts2[1]);
+    };
+
+    private static List<String> classes() {
+        final List<String> ret = new ArrayList<>(Arrays.asList("a", "b", "aa", "a$1", "a$2", "a$10", "a$b", "a$1$2", "a$", "$a", "", "net/minecraft/A", "net/minecraft/A$1", "com/mojang/B$C", "z$Inner"));
+        final Random rand = new Random(42);
+        for (int x = 0; x < 200; x++) {
+            StringBuilder buf = new StringBuilder(rand.nextBoolean() ? "pkg/" : "");
+            buf.append((char)('a' + rand.nextInt(3)));
+            for (int y = rand.nextInt(3); y > 0; y--)
+                buf.append('$').append(rand.nextBoolean() ? String.valueOf(rand.nextInt(12)) : String.valueOf((char)('a' + rand.nextInt(3))));
+            ret.add(buf.toString());
+        }
+        return ret;
+    }
+
+    @Test
+    public void testClassKeys() {
+        final List<String> values = classes();
+        for (String l : values)
+            for (String r : values)
+                Assertions.assertEquals(LEGACY_CLASSES.compare(l, r), Sorters.classKey(l).compareTo(Sorters.classKey(r)), "Mismatch comparing " + l + " to " + r);
+    }
+
+    @Test
+    public void testMemberKeys() {
+        final List<String> classes = classes().subList(0, 60);
+        final List<String> fields = new ArrayList<>();
+        final List<String> methods = new ArrayList<>();
+        for (String cls : classes) {
+            for (String name : new String[] {"a", "b"}) {
+                fields.add(cls + "." + name);
+                methods.add(cls + "." + name + " ()V");
+                methods.add(cls + "." + name + " (I)V");
+            }
+        }
+
+        for (String l : fields)
+            for (String r : fields)
+                Assertions.assertEquals(LEGACY_FIELDS.compare(l, r), Sorters.fieldKey(l).compareTo(Sorters.fieldKey(r)), "Mismatch comparing " + l + " to " + r);
+        for (String l : methods)
+            for (String r : methods)
+                Assertions.assertEquals(LEGACY_METHODS.compare(l, r), Sorters.methodKey(l).compareTo(Sorters.methodKey(r)), "Mismatch comparing " + l + " to " + r);
+    }
+
+    @Test
+    public void testSorted() {
+        final List<String> values = classes();
+        Collections.shuffle(values, new Random(7));
+        final List<String> expected = new ArrayList<>(values);
+        Collections.sort(expected, LEGACY_CLASSES);
+        Assertions.assertEquals(expected, Sorters.sorted(values, Sorters::classKey));
+    }
+}
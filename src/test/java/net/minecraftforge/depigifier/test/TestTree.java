@@ -0,0 +1,283 @@
+/*
+ * DePigifier
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.depigifier.test;
+
+import net.minecraftforge.depigifier.Compression;
+import net.minecraftforge.depigifier.MapperCache;
+import net.minecraftforge.depigifier.model.Class;
+import net.minecraftforge.depigifier.model.Method;
+import net.minecraftforge.depigifier.model.SymbolTable;
+import net.minecraftforge.depigifier.model.Tree;
+import net.minecraftforge.depigifier.model.TreeSnapshot;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestTree {
+    @Test
+    public void testDescriptorCache() {
+        final Tree tree = new Tree();
+        final Method mtd = tree.getClass("Owner").getMethod("run", "(LArg;[LNested$Inner;)LRet;");
+        Assertions.assertEquals("(LArg;[LNested$Inner;)LRet;", mtd.getNewDesc(tree));
+
+        tree.getClass("Arg").rename("a");
+        Assertions.assertEquals("(La;[LNested$Inner;)LRet;", mtd.getNewDesc(tree), "Argument rename was not picked up");
+        tree.getClass("Ret").rename("r");
+        Assertions.assertEquals("(La;[LNested$Inner;)Lr;", mtd.getNewDesc(tree), "Return type rename was not picked up");
+        tree.getClass("Nested").rename("n");
+        Assertions.assertEquals("(La;[Ln$Inner;)Lr;", mtd.getNewDesc(tree), "Outer class rename was not picked up");
+        tree.getClass("Nested$Inner").rename("n$i");
+        Assertions.assertEquals("(La;[Ln$i;)Lr;", mtd.getNewDesc(tree), "Inner class rename was not picked up");
+
+        final Method other = tree.getClass("Owner").getMethod("walk", "(Lpkg/Path;LOuter$Step;)V");
+        tree.getClass("Outer").rename("o");
+        Assertions.assertEquals("(Lpkg/Path;Lo$Step;)V", other.getNewDesc(tree));
+        tree.addPackage("pkg", "p");
+        Assertions.assertEquals("(Lp/Path;Lo$Step;)V", other.getNewDesc(tree), "Added package was not picked up");
+        tree.getClass("Outer$Step");
+        Assertions.assertEquals("(Lp/Path;LOuter$Step;)V", other.getNewDesc(tree), "Added class was not picked up");
+    }
+
+    @Test
+    public void testSymbolTable() {
+        final SymbolTable symbols = new SymbolTable();
+        Assertions.assertNull(symbols.findSignature("run", "()V"), "Signature should not exist yet");
+        final String sig = symbols.signature("run", "()V");
+        Assertions.assertEquals("run()V", sig);
+        Assertions.assertSame(sig, symbols.signature(new String("run"), new String("()V")), "Signature was not canonical");
+        Assertions.assertSame(sig, symbols.findSignature("run", "()V"), "Signature was not found");
+        Assertions.assertSame(sig, symbols.intern(new String("run()V")), "Signature was not interned");
+
+        for (int x = 0; x < 10000; x++)
+            symbols.signature("m" + x, "(I)V");
+        for (int x = 0; x < 10000; x++)
+            Assertions.assertEquals("m" + x + "(I)V", symbols.findSignature("m" + x, "(I)V"), "Signature lost after resize");
+
+        final Tree left = new Tree(symbols);
+        final Tree right = new Tree(symbols);
+        Assertions.assertSame(left.getClass(new String("Foo")).getOldName(), right.getClass(new String("Foo")).getOldName(), "Trees do not share names");
+        Assertions.assertNotSame(new Tree().getClass(new String("Foo")).getOldName(), new Tree().getClass(new String("Foo")).getOldName(), "Trees should only share names through the same table");
+    }
+
+    @Test
+    public void testConcurrentSymbols() throws Exception {
+        final SymbolTable symbols = new SymbolTable();
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            // Every thread adds the same signatures in a different order, past several resizes, and looks each one up straight away
+            final List<Future<String[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t * 5000;
+                results.add(pool.submit(() -> {
+                    final String[] ret = new String[40000];
+                    for (int x = 0; x < ret.length; x++) {
+                        final int id = (x + offset) % ret.length;
+                        ret[id] = symbols.signature("m" + id, "(I)V");
+                        Assertions.assertSame(ret[id], symbols.findSignature("m" + id, "(I)V"), "Signature added by this thread was not found");
+                    }
+                    return ret;
+                }));
+            }
+            final String[] first = results.get(0).get();
+            for (Future<String[]> result : results) {
+                final String[] sigs = result.get();
+                for (int x = 0; x < sigs.length; x++)
+                    Assertions.assertSame(first[x], sigs[x], "Threads got different instances of " + first[x]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        final Tree tree = new Tree();
+        final Class cls = tree.getClass("net/minecraft/Foo").rename("a");
+        cls.getField("count").setType("I").rename("b");
+        cls.getField("unknown").rename("c");
+        cls.getMethod("copy", "(Lnet/minecraft/Foo;)Lnet/minecraft/Foo;").rename("d").setLines(10, 20);
+        cls.getMethod("tick", "()V").rename("e");
+        tree.getClass("net/minecraft/Foo$Bar\u00e9");
+        tree.addPackage("net/minecraft/world", "net/minecraft/level");
+
+        final Path file = Files.createTempFile("depigifier", ".tree");
+        try {
+            TreeSnapshot.write(tree, file);
+            final Tree read = TreeSnapshot.read(file);
+            Assertions.assertEquals(2, read.getClasses().size());
+            Assertions.assertNotNull(read.tryClass("net/minecraft/Foo$Bar\u00e9"), "Non ASCII name was not read");
+            Assertions.assertEquals("net/minecraft/level/Baz", read.mapClass("net/minecraft/world/Baz"), "Packages were not read");
+
+            final Class rcls = read.tryNewClass("a");
+            Assertions.assertEquals("net/minecraft/Foo", rcls.getOldName());
+            Assertions.assertEquals("b", rcls.mapField("count"));
+            Assertions.assertEquals("I", rcls.tryField("count").getType());
+            Assertions.assertNull(rcls.tryField("unknown").getType(), "Unknown field type should stay unknown");
+
+            final Method copy = rcls.tryNewMethod("d", "(La;)La;");
+            Assertions.assertNotNull(copy, "Method was not found by its new descriptor");
+            Assertions.assertEquals(10, copy.getStart());
+            Assertions.assertEquals(20, copy.getEnd());
+            Assertions.assertFalse(rcls.tryMethod("tick", "()V").hasLines());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCompressedInput() throws IOException {
+        final byte[] map = "net.minecraft.Foo -> a:\n    int count -> b\n".getBytes(StandardCharsets.UTF_8);
+        for (Compression compression : new Compression[] { Compression.NONE, Compression.GZIP }) {
+            final Path file = Files.createTempFile("depigifier", ".txt");
+            try {
+                try (OutputStream out = compression.wrap(Files.newOutputStream(file))) {
+                    out.write(map);
+                }
+                final Tree tree = Tree.fromProguard(file, true);
+                Assertions.assertEquals("a", tree.mapClass("net/minecraft/Foo"), "Map was not read with " + compression);
+                Assertions.assertEquals("b", tree.tryClass("net/minecraft/Foo").mapField("count"));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testPackages() {
+        final Tree tree = new Tree();
+        tree.addPackage("net/minecraft/world", "net/minecraft/level");
+        tree.addPackage("net/minecraft/world/gen", "gen");
+        tree.addPackage("moved", "");
+        tree.addPackage("", "root");
+        tree.getClass("net/minecraft/world/Outer").rename("o");
+
+        Assertions.assertEquals("net/minecraft/level/Foo", tree.mapClass("net/minecraft/world/Foo"));
+        Assertions.assertEquals("net/minecraft/level/biome/Foo", tree.mapClass("net/minecraft/world/biome/Foo"), "Sub packages should move with their parent");
+        Assertions.assertEquals("gen/Foo", tree.mapClass("net/minecraft/world/gen/Foo"), "Longest package was not used");
+        Assertions.assertEquals("net/minecraft/worldgen/Foo", tree.mapClass("net/minecraft/worldgen/Foo"), "Packages should only match whole segments");
+        Assertions.assertEquals("Foo", tree.mapClass("moved/Foo"));
+        Assertions.assertEquals("root/Foo$Bar", tree.mapClass("Foo$Bar"));
+        Assertions.assertEquals("java/lang/Object", tree.mapClass("java/lang/Object"), "Default package mapping should not apply to other packages");
+
+        Assertions.assertEquals("o", tree.mapClass("net/minecraft/world/Outer"));
+        Assertions.assertEquals("o$Inner$1", tree.mapClass("net/minecraft/world/Outer$Inner$1"), "Nested class should follow its outer class");
+        Assertions.assertEquals("net/minecraft/level/Unknown$Inner", tree.mapClass("net/minecraft/world/Unknown$Inner"));
+
+        tree.getClass("net/minecraft/world/Outer$Inner").rename("i");
+        Assertions.assertEquals("i$1", tree.mapClass("net/minecraft/world/Outer$Inner$1"), "Added class was not picked up");
+    }
+
+    @Test
+    public void testCompose() {
+        final Tree first = new Tree();
+        first.addPackage("old/pkg", "mid/pkg");
+        final Class a = first.getClass("A").rename("B");
+        a.getField("f").rename("g");
+        a.getMethod("m", "(LA;)V").rename("n");
+        first.getClass("Outer").rename("Mid");
+
+        final Tree second = new Tree();
+        second.addPackage("mid", "last");
+        final Class b = second.getClass("B").rename("C");
+        b.getField("g").rename("h");
+        b.getField("x").rename("y");
+        b.getMethod("n", "(LB;)V").rename("o");
+        b.getMethod("p", "(LMid$Inner;)V").rename("q");
+        second.getClass("D").rename("E").getMethod("r", "(LB;)LD;").rename("s");
+        second.getClass("Mid$Inner").rename("I");
+        second.getClass("A").rename("Hidden");
+
+        final MapperCache chain = new MapperCache(0);
+        chain.addMapper(first);
+        chain.addMapper(second);
+        final MapperCache composed = new MapperCache(0);
+        composed.addMapper(Tree.compose(Arrays.asList(first, second)));
+
+        for (String cls : new String[] { "A", "B", "D", "Outer", "Outer$Inner", "Outer$Inner$Deep", "old/pkg/Foo", "old/pkg/sub/Foo", "mid/Foo", "java/lang/Object" })
+            Assertions.assertEquals(chain.mapClass(cls), composed.mapClass(cls), "Class " + cls + " differs");
+        Assertions.assertEquals("C", composed.mapClass("A"));
+        Assertions.assertEquals("I", composed.mapClass("Outer$Inner"), "Nested class of a renamed class was not traced back");
+        Assertions.assertEquals("last/pkg/Foo", composed.mapClass("old/pkg/Foo"));
+
+        for (String fld : new String[] { "f", "x" })
+            Assertions.assertEquals(chain.mapField("A", fld), composed.mapField("A", fld), "Field " + fld + " differs");
+        Assertions.assertEquals("y", composed.mapField("A", "x"), "Field only known to the second tree was lost");
+
+        for (String[] mtd : new String[][] { { "A", "m(LA;)V" }, { "A", "p(LOuter$Inner;)V" }, { "D", "r(LA;)LD;" } })
+            Assertions.assertEquals(chain.mapMethod(mtd[0], mtd[1]), composed.mapMethod(mtd[0], mtd[1]), "Method " + mtd[1] + " differs");
+        Assertions.assertEquals("s(LC;)LE;", composed.mapMethod("D", "r(LA;)LD;"));
+    }
+
+    private static Tree build(final boolean bulk) {
+        final Tree tree = new Tree(new SymbolTable());
+        if (bulk)
+            tree.beginBulkLoad();
+        final Class foo = tree.getClass("net/minecraft/Foo");
+        foo.getField("count").rename("a");
+        foo.getMethod("copy", "(Lnet/minecraft/Bar;[Lnet/minecraft/Foo$Inner;)Lnet/minecraft/Foo;").rename("b");
+        foo.getMethod("tick", "()V");
+        foo.rename("c");
+        tree.getClass("net/minecraft/Bar").rename("d");
+        tree.getClass("net/minecraft/Foo$Inner").rename("c$e");
+        if (bulk)
+            tree.endBulkLoad();
+        return tree;
+    }
+
+    @Test
+    public void testBulkLoadMethodFirst() {
+        // Nothing else has put the new signatures in this tree's symbol table yet
+        final Tree tree = build(true);
+        final Class foo = tree.tryClass("net/minecraft/Foo");
+        Assertions.assertEquals("copy", foo.tryNewMethod("b", "(Ld;[Lc$e;)Lc;").getOldName(), "Method lookup before any other lookup failed");
+        Assertions.assertEquals("tick", foo.tryNewMethod("tick", "()V").getOldName());
+    }
+
+    @Test
+    public void testBulkLoad() {
+        final Tree incremental = build(false);
+        final Tree bulk = build(true);
+        for (Tree tree : new Tree[] { incremental, bulk }) {
+            final Class foo = tree.tryNewClass("c");
+            Assertions.assertEquals("net/minecraft/Foo", foo.getOldName());
+            Assertions.assertEquals("net/minecraft/Bar", tree.tryNewClass("d").getOldName());
+            Assertions.assertEquals("count", foo.tryNewField("a").getOldName());
+            Assertions.assertEquals("copy", foo.tryNewMethod("b", "(Ld;[Lc$e;)Lc;").getOldName(), "Method was not found by its new descriptor");
+            Assertions.assertEquals("tick", foo.tryNewMethod("tick", "()V").getOldName());
+
+            // Renames after loading must still reach the methods referencing the class
+            tree.getClass("net/minecraft/Bar").rename("f");
+            Assertions.assertEquals("(Lf;[Lc$e;)Lc;", foo.tryMethod("copy", "(Lnet/minecraft/Bar;[Lnet/minecraft/Foo$Inner;)Lnet/minecraft/Foo;").getNewDesc(tree));
+            Assertions.assertNotNull(foo.tryNewMethod("b", "(Lf;[Lc$e;)Lc;"), "Rename after a bulk load was not picked up");
+        }
+    }
+}